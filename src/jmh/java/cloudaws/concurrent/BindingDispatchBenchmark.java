@@ -0,0 +1,108 @@
+package cloudaws.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cost of one Binding dispatch cycle at growing subscriber counts, with and without a UI
+ * thread concurrently pausing and resuming a subscriber. "locked" reproduces the former
+ * synchronized HashMap/HashSet registry as a baseline.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingDispatchBenchmark {
+
+	@Param({ "1", "100", "10000" })
+	public int subscribers;
+
+	private Binding<Integer> binding;
+	private LockedRegistry<Integer> locked;
+	private Object toggled;
+
+	@Setup
+	public void setup(Blackhole hole) {
+		binding = new Binding<>(() -> CompletableFuture.completedFuture(0));
+		locked = new LockedRegistry<>();
+
+		for (int i = 0; i < subscribers; i++) {
+			Object owner = new Object();
+			binding.bind(owner, hole::consume);
+			locked.bind(owner, hole::consume);
+			toggled = owner;
+		}
+	}
+
+	@Benchmark
+	@Group("cow")
+	public void cowDispatch() {
+		binding.publish(1);
+	}
+
+	@Benchmark
+	@Group("cowContended")
+	@GroupThreads(1)
+	public void cowContendedDispatch() {
+		binding.publish(1);
+	}
+
+	@Benchmark
+	@Group("cowContended")
+	@GroupThreads(1)
+	public void cowContendedToggle() {
+		binding.pause(toggled);
+		binding.resume(toggled);
+	}
+
+	@Benchmark
+	@Group("locked")
+	public void lockedDispatch() {
+		locked.publish(1);
+	}
+
+	@Benchmark
+	@Group("lockedContended")
+	@GroupThreads(1)
+	public void lockedContendedDispatch() {
+		locked.publish(1);
+	}
+
+	@Benchmark
+	@Group("lockedContended")
+	@GroupThreads(1)
+	public void lockedContendedToggle() {
+		locked.pause(toggled);
+		locked.resume(toggled);
+	}
+
+	// The registry as it was before the copy-on-write rewrite, made safe by locking dispatch too.
+	static final class LockedRegistry<T> {
+		private final Map<Object, Consumer<T>> notifiers = new HashMap<>();
+		private final Set<Object> active = new HashSet<>();
+
+		synchronized void bind(Object obj, Consumer<T> notify) {
+			notifiers.put(obj, notify);
+			active.add(obj);
+		}
+
+		synchronized void pause(Object obj) {
+			active.remove(obj);
+		}
+
+		synchronized void resume(Object obj) {
+			if (notifiers.containsKey(obj)) active.add(obj);
+		}
+
+		synchronized void publish(T value) {
+			for (Object obj : active) notifiers.get(obj).accept(value);
+		}
+	}
+}
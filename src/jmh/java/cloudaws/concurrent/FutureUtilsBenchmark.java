@@ -0,0 +1,39 @@
+package cloudaws.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the scheduling primitives behind promises: a polling round trip through
+ * {@link FutureUtils#enqueue(Runnable)}, a hop onto the completion pool, and registering
+ * plus cancelling a deadline on the shared timer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FutureUtilsBenchmark {
+
+	@Benchmark
+	public void enqueueRoundTrip() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		FutureUtils.enqueue(latch::countDown);
+		latch.await();
+	}
+
+	@Benchmark
+	public void completionHop() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		FutureUtils.complete(latch::countDown);
+		latch.await();
+	}
+
+	@Benchmark
+	public boolean deadlineScheduleCancel() {
+		return FutureUtils.schedule(() -> {}, Promise.DEFAULT_TIMEOUT).cancel();
+	}
+}
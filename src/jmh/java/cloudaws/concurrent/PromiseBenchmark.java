@@ -0,0 +1,62 @@
+package cloudaws.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from completing N concurrently pending sources until every wrapping Promise has completed,
+ * for both completion paths: following a CompletionStage and being resolved by a producer callback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromiseBenchmark {
+
+	@Param({ "1", "100", "10000" })
+	public int pending;
+
+	/**
+	 * Fresh sources for every {@code stage()} call; {@code callback()} does without, so it does not pay for them.
+	 */
+	@State(Scope.Thread)
+	public static class Sources {
+		CompletableFuture<Integer>[] sources;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Setup(Level.Invocation)
+		public void setup(PromiseBenchmark benchmark) {
+			sources = new CompletableFuture[benchmark.pending];
+			for (int i = 0; i < sources.length; i++) sources[i] = new CompletableFuture<>();
+		}
+	}
+
+	@Benchmark
+	public Object stage(Sources fixture) {
+		CompletableFuture<Integer>[] sources = fixture.sources;
+		Promise<?>[] promises = new Promise<?>[pending];
+		for (int i = 0; i < pending; i++) promises[i] = new Promise<>(sources[i]);
+		for (int i = 0; i < pending; i++) sources[i].complete(i);
+
+		return CompletableFuture.allOf(promises).join();
+	}
+
+	@Benchmark
+	public Object callback() {
+		Promise<Integer>[] promises = newPromises();
+		for (int i = 0; i < pending; i++) promises[i].resolve(i);
+
+		return CompletableFuture.allOf(promises).join();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Promise<Integer>[] newPromises() {
+		Promise<Integer>[] promises = new Promise[pending];
+		for (int i = 0; i < pending; i++) promises[i] = new Promise<>();
+		return promises;
+	}
+}
@@ -0,0 +1,62 @@
+package cloudaws.ec2;
+
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Tag;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name lookup and the instance list ordering over synthetic fleets. About a fifth of the
+ * instances are unnamed and every instance carries a few unrelated tags, as in a real Condor pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EC2UtilsBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int fleet;
+
+	private List<Instance> instances;
+	private List<InstanceSnapshot> snapshots;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		instances = new ArrayList<>(fleet);
+
+		for (int i = 0; i < fleet; i++) {
+			List<Tag> tags = new ArrayList<>();
+			tags.add(new Tag("aws:cloudformation:stack-name", "condor-pool"));
+			tags.add(new Tag("Role", i % 10 == 0 ? "collector" : "worker"));
+			if (random.nextInt(5) != 0) tags.add(new Tag("Name", String.format("worker-%06d", random.nextInt(fleet * 10))));
+			tags.add(new Tag("Owner", "team-" + random.nextInt(8)));
+
+			instances.add(new Instance()
+					.withInstanceId(String.format("i-%017x", random.nextLong() & 0xFFFFFFFFFFFFFL))
+					.withTags(tags));
+		}
+		snapshots = new ArrayList<>(fleet);
+		for (Instance instance : instances) snapshots.add(InstanceSnapshot.of(instance, "us-east-2"));
+	}
+
+	@Benchmark
+	public void getInstanceName(Blackhole hole) {
+		for (Instance instance : instances) hole.consume(EC2Utils.getInstanceName(instance));
+	}
+
+	@Benchmark
+	public List<InstanceSnapshot> sortByName() {
+		List<InstanceSnapshot> copy = new ArrayList<>(snapshots);
+		copy.sort(EC2Utils.BY_NAME);
+		return copy;
+	}
+}
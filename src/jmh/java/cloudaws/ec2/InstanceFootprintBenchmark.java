@@ -0,0 +1,176 @@
+package cloudaws.ec2;
+
+import com.amazonaws.services.ec2.model.CapacityReservationSpecificationResponse;
+import com.amazonaws.services.ec2.model.CpuOptions;
+import com.amazonaws.services.ec2.model.EbsInstanceBlockDevice;
+import com.amazonaws.services.ec2.model.EnclaveOptions;
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.HibernationOptions;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceBlockDeviceMapping;
+import com.amazonaws.services.ec2.model.InstanceMetadataOptionsResponse;
+import com.amazonaws.services.ec2.model.InstanceNetworkInterface;
+import com.amazonaws.services.ec2.model.InstanceNetworkInterfaceAttachment;
+import com.amazonaws.services.ec2.model.InstancePrivateIpAddress;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.Monitoring;
+import com.amazonaws.services.ec2.model.Placement;
+import com.amazonaws.services.ec2.model.Tag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained by an inventory held as SDK {@link Instance} graphs versus {@link InstanceSnapshot}s.
+ * Instances are filled the way DescribeInstances returns them, every string a fresh copy as the
+ * unmarshaller would produce. The result is the {@code bytesPerInstance} counter; the timing is incidental.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class InstanceFootprintBenchmark {
+
+	@Param({ "10000" })
+	public int fleet;
+
+	@Param({ "sdk", "snapshot" })
+	public String model;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public long bytesPerInstance;
+		public long retainedKiB;
+	}
+
+	@Benchmark
+	public Object retained(Footprint footprint) {
+		long before = usedAfterGc();
+
+		List<Object> inventory = new ArrayList<>(fleet);
+		Random random = new Random(42);
+		for (int i = 0; i < fleet; i++) {
+			Instance instance = describe(random, i);
+			inventory.add(model.equals("sdk") ? instance : InstanceSnapshot.of(instance, "us-east-2"));
+		}
+
+		long retained = Math.max(0, usedAfterGc() - before);
+		footprint.bytesPerInstance = retained / fleet;
+		footprint.retainedKiB = retained / 1024;
+		return inventory;
+	}
+
+	private static long usedAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		// Several rounds; a single System.gc() does not reliably settle the heap.
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+	private static String fresh(String value) {
+		return new String(value.toCharArray());
+	}
+
+	private static Instance describe(Random random, int i) {
+		String id = String.format("i-%017x", random.nextLong() & 0xFFFFFFFFFFFFFL);
+		String zone = fresh("us-east-2" + (char) ('a' + i % 3));
+		String vpc = fresh("vpc-0a1b2c3d4e5f67890");
+		String subnet = fresh("subnet-0" + (i % 3) + "1b2c3d4e5f6789");
+		String privateIp = "10.0." + (i / 250) % 256 + "." + i % 250;
+		String privateDns = "ip-" + privateIp.replace('.', '-') + ".us-east-2.compute.internal";
+		boolean running = random.nextInt(5) != 0;
+		String publicIp = running ? "3." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) : "";
+		String publicDns = running ? "ec2-" + publicIp.replace('.', '-') + ".us-east-2.compute.amazonaws.com" : "";
+		Date launched = new Date(1600000000000L + random.nextInt(1000000000));
+
+		List<Tag> tags = new ArrayList<>();
+		tags.add(new Tag(fresh("aws:cloudformation:stack-name"), fresh("condor-pool")));
+		tags.add(new Tag(fresh("Role"), fresh(i % 10 == 0 ? "collector" : "worker")));
+		tags.add(new Tag(fresh("Name"), String.format("worker-%06d", i)));
+		tags.add(new Tag(fresh("Owner"), "team-" + random.nextInt(8)));
+
+		GroupIdentifier group = new GroupIdentifier().withGroupId(fresh("sg-0123456789abcdef0")).withGroupName(fresh("condor"));
+
+		return new Instance()
+				.withInstanceId(id)
+				.withImageId(fresh("ami-0f924dc71d44d23e2"))
+				.withInstanceType(fresh("t2.micro"))
+				.withKeyName(fresh("condor-key"))
+				.withLaunchTime(launched)
+				.withMonitoring(new Monitoring().withState(fresh("disabled")))
+				.withPlacement(new Placement().withAvailabilityZone(zone).withGroupName(fresh("")).withTenancy(fresh("default")))
+				.withPrivateDnsName(privateDns)
+				.withPrivateIpAddress(privateIp)
+				.withPublicDnsName(publicDns)
+				.withPublicIpAddress(running ? publicIp : null)
+				.withState(new InstanceState().withCode(running ? 16 : 80).withName(fresh(running ? "running" : "stopped")))
+				.withStateTransitionReason(fresh(running ? "" : "User initiated (2021-10-01 12:00:00 GMT)"))
+				.withSubnetId(subnet)
+				.withVpcId(vpc)
+				.withArchitecture(fresh("x86_64"))
+				.withBlockDeviceMappings(new InstanceBlockDeviceMapping()
+						.withDeviceName(fresh("/dev/xvda"))
+						.withEbs(new EbsInstanceBlockDevice()
+								.withAttachTime(launched)
+								.withDeleteOnTermination(true)
+								.withStatus(fresh("attached"))
+								.withVolumeId(String.format("vol-%017x", random.nextLong() & 0xFFFFFFFFFFFFFL))))
+				.withClientToken(fresh(""))
+				.withEbsOptimized(false)
+				.withEnaSupport(true)
+				.withHypervisor(fresh("xen"))
+				.withNetworkInterfaces(new InstanceNetworkInterface()
+						.withAttachment(new InstanceNetworkInterfaceAttachment()
+								.withAttachTime(launched)
+								.withAttachmentId(String.format("eni-attach-%017x", random.nextLong() & 0xFFFFFFFFFFFFFL))
+								.withDeleteOnTermination(true)
+								.withDeviceIndex(0)
+								.withStatus(fresh("attached"))
+								.withNetworkCardIndex(0))
+						.withDescription(fresh(""))
+						.withGroups(new GroupIdentifier().withGroupId(fresh("sg-0123456789abcdef0")).withGroupName(fresh("condor")))
+						.withMacAddress(String.format("02:%02x:%02x:%02x:%02x:%02x", random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256)))
+						.withNetworkInterfaceId(String.format("eni-%017x", random.nextLong() & 0xFFFFFFFFFFFFFL))
+						.withOwnerId(fresh("123456789012"))
+						.withPrivateDnsName(fresh(privateDns))
+						.withPrivateIpAddress(fresh(privateIp))
+						.withPrivateIpAddresses(new InstancePrivateIpAddress()
+								.withPrimary(true)
+								.withPrivateDnsName(fresh(privateDns))
+								.withPrivateIpAddress(fresh(privateIp)))
+						.withSourceDestCheck(true)
+						.withStatus(fresh("in-use"))
+						.withSubnetId(fresh(subnet))
+						.withVpcId(fresh(vpc))
+						.withInterfaceType(fresh("interface")))
+				.withRootDeviceName(fresh("/dev/xvda"))
+				.withRootDeviceType(fresh("ebs"))
+				.withSecurityGroups(group)
+				.withSourceDestCheck(true)
+				.withTags(tags)
+				.withVirtualizationType(fresh("hvm"))
+				.withCpuOptions(new CpuOptions().withCoreCount(1).withThreadsPerCore(1))
+				.withCapacityReservationSpecification(new CapacityReservationSpecificationResponse().withCapacityReservationPreference(fresh("open")))
+				.withHibernationOptions(new HibernationOptions().withConfigured(false))
+				.withMetadataOptions(new InstanceMetadataOptionsResponse()
+						.withState(fresh("applied"))
+						.withHttpTokens(fresh("optional"))
+						.withHttpPutResponseHopLimit(1)
+						.withHttpEndpoint(fresh("enabled")))
+				.withEnclaveOptions(new EnclaveOptions().withEnabled(false))
+				.withPlatformDetails(fresh("Linux/UNIX"))
+				.withUsageOperation(fresh("RunInstances"))
+				.withUsageOperationUpdateTime(launched);
+	}
+}
@@ -0,0 +1,57 @@
+package cloudaws.ssh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting {@code condor_status -long} style output into lines as it arrives in read-sized chunks:
+ * the old accumulate-then-split approach against the incremental splitter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineSplitterBenchmark {
+	private static final int CHUNK = 16 * 1024;
+
+	// About 60 attributes of ~40 bytes per slot ad.
+	@Param({ "100", "2000" })
+	public int slots;
+
+	private byte[] output;
+
+	@Setup
+	public void setup() {
+		StringBuilder text = new StringBuilder();
+		for (int slot = 0; slot < slots; slot++) {
+			for (int attr = 0; attr < 60; attr++) {
+				text.append("Attribute").append(attr).append(" = \"slot").append(slot).append("@worker-").append(slot % 500).append("\"\n");
+			}
+			text.append('\n');
+		}
+		output = text.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public void accumulateAndSplit(Blackhole bh) {
+		StringBuilder response = new StringBuilder();
+		for (int off = 0; off < output.length; off += CHUNK) {
+			response.append(new String(output, off, Math.min(CHUNK, output.length - off), StandardCharsets.UTF_8));
+		}
+		for (String line : response.toString().split("\n")) bh.consume(line);
+	}
+
+	@Benchmark
+	public void incremental(Blackhole bh) {
+		LineSplitter splitter = new LineSplitter(bh::consume);
+		for (int off = 0; off < output.length; off += CHUNK) {
+			splitter.write(output, off, Math.min(CHUNK, output.length - off));
+		}
+		splitter.close();
+	}
+}
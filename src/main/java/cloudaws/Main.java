@@ -1,16 +1,24 @@
 package cloudaws;
 
+import cloudaws.concurrent.ExecutionPools;
+import cloudaws.concurrent.HashedWheelTimer;
+import cloudaws.concurrent.PoolStats;
 import cloudaws.ec2.EC2Manager;
+import cloudaws.metrics.Metrics;
+import cloudaws.ssh.SessionPool;
 import cloudaws.ui.MainScreen;
 
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 public class Main {
 	private static boolean terminated = false;
 
-	public static final ScheduledExecutorService PROMISE_POOL = Executors.newSingleThreadScheduledExecutor();
-	public static final ScheduledExecutorService BINDING_POOL = Executors.newSingleThreadScheduledExecutor();
+	public static final ExecutionPools POOLS = ExecutionPools.fromSystemProperties();
+	public static final ScheduledExecutorService SCHEDULER = POOLS.scheduler();
+	public static final ExecutorService COMPLETION_POOL = POOLS.completion();
+	public static final ExecutorService IO_POOL = POOLS.io();
+	public static final HashedWheelTimer TIMER = new HashedWheelTimer("TIMER", 10, 512);
 
 	public static EC2Manager EC2() {
 		return EC2Manager.INSTANCE;
@@ -20,17 +28,29 @@ public class Main {
 
 	public static void initialize() {
 		Runtime.getRuntime().addShutdownHook(new Thread(Main::terminate, "TERM_HOOK"));
+		registerGauges();
 		EC2().init();
 		terminated = false;
 
 		screen = new MainScreen();
 	}
 
+	private static void registerGauges() {
+		// Every pending promise holds exactly one deadline on the timer.
+		Metrics.gauge("promise.pending", TIMER::pending);
+		for (PoolStats stats : POOLS.stats()) {
+			String name = stats.getName();
+			Metrics.gauge("pool." + name + ".active", () -> POOLS.stats(name).getActive());
+			Metrics.gauge("pool." + name + ".queued", () -> POOLS.stats(name).getQueued());
+		}
+	}
+
 	public static void terminate() {
 		if (!terminated) {
 			EC2().terminate();
-			PROMISE_POOL.shutdown();
-			BINDING_POOL.shutdown();
+			SessionPool.SHARED.shutdown();
+			POOLS.shutdown();
+			TIMER.stop();
 
 			screen.collapse();
 			terminated = true;
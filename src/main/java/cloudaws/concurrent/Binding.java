@@ -1,30 +1,57 @@
 package cloudaws.concurrent;
 
 import cloudaws.Main;
+import cloudaws.metrics.Metrics;
+import cloudaws.metrics.Operation;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 public class Binding<T> {
-	private static final ScheduledExecutorService SERVICE = Main.BINDING_POOL;
-	private static final long DEFAULT_RELOAD_DELAY = 1000;
+	private static final ScheduledExecutorService SERVICE = Main.SCHEDULER;
+	public static final long DEFAULT_RELOAD_DELAY = 1000;
 
-	private T data;
-	private T defaultValue = null;
+	// Consecutive identical results tolerated before the period starts to stretch.
+	private static final int IDLE_THRESHOLD = 3;
+	private static final double IDLE_FACTOR = 1.5;
+	private static final long DEFAULT_IDLE_SCALE = 10;
+	private static final long MAX_FAILURE_DELAY = 60000;
 
-	private Supplier<CompletableFuture<T>> provider;
-	private Predicate<Throwable> failure;
+	private static final Operation UPDATES = Metrics.operation("binding.update");
+	private static final ThreadLocal<Boolean> POLLING = ThreadLocal.withInitial(() -> false);
 
-	private final Map<Object, Consumer<T>> notifiers = new HashMap<>();
-	private final Set<Object> active = new HashSet<>();
+	private volatile T data;
+	private volatile T defaultValue = null;
+
+	private volatile Supplier<CompletableFuture<T>> provider;
+	private volatile Predicate<Throwable> failure;
+	private volatile BiPredicate<T, T> equality = Objects::equals;
+
+	// Copy-on-write registry: writers swap in a new array, dispatch iterates whatever it read.
+	private final AtomicReference<Subscriber<T>[]> subscribers = new AtomicReference<>(Subscriber.none());
 
 	private long period;
-	private boolean stopped = false;
+	private long maxPeriod;
+	private long current;
+	private int unchanged = 0;
+	private int failures = 0;
+
+	private volatile boolean stopped = false;
+	private boolean inFlight = false;
+	private boolean hinted = false;
+
+	private long generation = 0;
+	private ScheduledFuture<?> next;
 
 	public Binding(Supplier<CompletableFuture<T>> provider) {
 		this(provider, null, DEFAULT_RELOAD_DELAY);
@@ -41,22 +68,29 @@ public class Binding<T> {
 	public Binding(Supplier<CompletableFuture<T>> provider, Predicate<Throwable> failure, long period) {
 		this.provider = Objects.requireNonNull(provider);
 		this.failure = failure;
-		this.period = Math.max(1, period);
+		this.withPeriod(period);
 	}
 
-	public synchronized Binding<T> withProvider(Supplier<CompletableFuture<T>> provider) {
+	public Binding<T> withProvider(Supplier<CompletableFuture<T>> provider) {
 		this.provider = Objects.requireNonNull(provider);
 		return this;
 	}
 
-	public synchronized Binding<T> onFailure(Predicate<Throwable> failure) {
+	public Binding<T> onFailure(Predicate<Throwable> failure) {
 		this.failure = failure;
 		return this;
 	}
 
-	public synchronized Binding<T> withNotifier(Object obj, Consumer<T> notify) {
-		notifiers.put(obj, notify);
-		active.add(obj);
+	public Binding<T> withNotifier(Object obj, Consumer<T> notify) {
+		Subscriber<T> subscriber = new Subscriber<>(Objects.requireNonNull(obj), Objects.requireNonNull(notify), true);
+		mutate(list -> {
+			int idx = Subscriber.indexOf(list, obj);
+			if (idx < 0) return Subscriber.append(list, subscriber);
+
+			Subscriber<T>[] copy = list.clone();
+			copy[idx] = subscriber;
+			return copy;
+		});
 
 		return this;
 	}
@@ -66,75 +100,256 @@ public class Binding<T> {
 		return this;
 	}
 
-	public Binding<T> withPeriod(long period) {
-		this.period = period;
+	public synchronized Binding<T> withPeriod(long period) {
+		this.period = Math.max(1, period);
+		this.maxPeriod = this.period * DEFAULT_IDLE_SCALE;
+		this.current = this.period;
+		return this;
+	}
+
+	/**
+	 * Upper bound the polling period may stretch to while results keep coming back unchanged.
+	 */
+	public synchronized Binding<T> withMaxPeriod(long maxPeriod) {
+		this.maxPeriod = Math.max(this.period, maxPeriod);
+		return this;
+	}
+
+	/**
+	 * Decides whether two consecutive results count as "unchanged" for back-off purposes.
+	 */
+	public Binding<T> withEquality(BiPredicate<T, T> equality) {
+		this.equality = Objects.requireNonNull(equality);
 		return this;
 	}
 
-	public synchronized void bind(Object obj, Consumer<T> notify) {
+	public void bind(Object obj, Consumer<T> notify) {
 		withNotifier(obj, notify);
 	}
 
-	public synchronized void listen(Object obj) {
-		if (notifiers.containsKey(obj)) active.add(obj);
+	public void listen(Object obj) {
+		setActive(obj, true);
 	}
 
-	public synchronized void resume(Object obj) {
+	public void resume(Object obj) {
 		this.listen(obj);
 	}
 
-	public synchronized void pause(Object obj) {
-		active.remove(obj);
+	/**
+	 * Stops delivering to {@code obj}. A dispatch already in progress works on the registry
+	 * as it was when it started and may still deliver its current value once.
+	 */
+	public void pause(Object obj) {
+		setActive(obj, false);
+	}
+
+	public void unbind(Object obj) {
+		mutate(list -> {
+			int idx = Subscriber.indexOf(list, obj);
+			return idx < 0 ? list : Subscriber.remove(list, idx);
+		});
+	}
+
+	public void clear() {
+		subscribers.set(Subscriber.none());
+	}
+
+	private void setActive(Object obj, boolean active) {
+		mutate(list -> {
+			int idx = Subscriber.indexOf(list, obj);
+			if (idx < 0 || list[idx].active == active) return list;
+
+			Subscriber<T>[] copy = list.clone();
+			copy[idx] = new Subscriber<>(list[idx].owner, list[idx].notify, active);
+			return copy;
+		});
+	}
+
+	private void mutate(UnaryOperator<Subscriber<T>[]> change) {
+		Subscriber<T>[] current, updated;
+		do {
+			current = subscribers.get();
+			updated = change.apply(current);
+		}
+		while (current != updated && !subscribers.compareAndSet(current, updated));
 	}
 
-	public synchronized void unbind(Object obj) {
-		active.remove(obj);
-		notifiers.remove(obj);
+	boolean hasActive() {
+		for (Subscriber<T> subscriber : subscribers.get()) {
+			if (subscriber.active) return true;
+		}
+		return false;
 	}
 
-	public synchronized void clear() {
-		active.clear();
-		notifiers.clear();
+	void publish(T value) {
+		for (Subscriber<T> subscriber : subscribers.get()) {
+			if (subscriber.active) subscriber.notify.accept(value);
+		}
 	}
 
 	public T get() {
 		return this.data;
 	}
 
+	/**
+	 * Whether the current thread is inside a provider call made by a periodic refresh,
+	 * i.e. work nobody is actively waiting for.
+	 */
+	public static boolean isPolling() {
+		return POLLING.get();
+	}
+
 	public void start() {
+		start(0);
+	}
+
+	/**
+	 * Starts refreshing after {@code delay} ms, for owners that already loaded the first value themselves.
+	 */
+	public synchronized void start(long delay) {
 		stopped = false;
-		SERVICE.schedule(this::update, 0, TimeUnit.MILLISECONDS);
+		current = period;
+		schedule(Math.max(0, delay));
+	}
+
+	/**
+	 * Hints that the underlying data is about to change (e.g. right after a mutation):
+	 * reloads as soon as possible and drops back to the base period.
+	 */
+	public synchronized void refresh() {
+		unchanged = 0;
+		current = period;
+
+		if (stopped) return;
+		if (inFlight) hinted = true;
+		else schedule(0);
 	}
 
-	protected void update() {
+	private synchronized void schedule(long delay) {
+		if (next != null) next.cancel(false);
+
+		long gen = ++generation;
+		next = SERVICE.schedule(() -> this.update(gen), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void reschedule(long delay) {
+		inFlight = false;
+		if (stopped) return;
+
+		if (hinted) {
+			hinted = false;
+			delay = 0;
+		}
+		schedule(delay);
+	}
+
+	private synchronized boolean begin(long gen) {
+		if (gen != generation || stopped) return false;
+
+		inFlight = hasActive();
+		if (!inFlight) schedule(period);
+		return inFlight;
+	}
+
+	private void update(long gen) {
+		if (!begin(gen)) return;
+
 		long start = System.currentTimeMillis();
-		if (!active.isEmpty()) {
-			provider.get().thenAccept(newData -> {
-				this.data = newData != null ? newData : this.defaultValue;
-				long elapsed = System.currentTimeMillis() - start;
+		CompletableFuture<T> future;
+		POLLING.set(true);
+		try {
+			future = UPDATES.track(provider.get());
+		} finally {
+			POLLING.set(false);
+		}
 
-				for (Object obj : active) {
-					notifiers.get(obj).accept(this.data);
-				}
+		future.thenAccept(newData -> {
+			T value = newData != null ? newData : this.defaultValue;
+			boolean changed = !this.equality.test(this.data, value);
+
+			this.data = value;
+			long elapsed = System.currentTimeMillis() - start;
 
-				if (!stopped) SERVICE.schedule(this::update, Math.min(this.period, Math.max(1, this.period - elapsed)), TimeUnit.MILLISECONDS);
-			}).exceptionally(exception -> {
-				this.data = defaultValue;
-				boolean ignore = true;
-				if (this.failure != null) ignore = this.failure.test(exception);
+			this.publish(value);
 
-				if (!stopped && ignore) {
-					SERVICE.schedule(this::update, this.period, TimeUnit.MILLISECONDS);
+			reschedule(Math.max(1, this.nextPeriod(changed) - elapsed));
+		}).exceptionally(exception -> {
+			this.data = defaultValue;
+			boolean ignore = true;
+			if (this.failure != null) ignore = this.failure.test(exception);
+
+			if (ignore) {
+				reschedule(this.failureDelay());
+			}
+			else {
+				synchronized (this) {
+					inFlight = false;
 				}
-				return null;
-			});
+			}
+			return null;
+		});
+	}
+
+	private synchronized long nextPeriod(boolean changed) {
+		failures = 0;
+		if (changed) {
+			unchanged = 0;
+			current = period;
 		}
-		else if (!stopped) {
-			SERVICE.schedule(this::update, this.period, TimeUnit.MILLISECONDS);
+		else if (++unchanged >= IDLE_THRESHOLD) {
+			current = Math.min(maxPeriod, (long) (current * IDLE_FACTOR));
 		}
+		return current;
+	}
+
+	private synchronized long failureDelay() {
+		// Exponential back-off with "equal jitter": half fixed, half random.
+		long ceiling = Math.min(MAX_FAILURE_DELAY, period << Math.min(failures++, 16));
+		long half = Math.max(1, ceiling / 2);
+		return half + ThreadLocalRandom.current().nextLong(half + 1);
 	}
 
-	public void stop() {
+	public synchronized void stop() {
 		stopped = true;
+		hinted = false;
+		if (next != null) next.cancel(false);
+	}
+
+	private static final class Subscriber<T> {
+		private static final Subscriber<?>[] NONE = new Subscriber<?>[0];
+
+		final Object owner;
+		final Consumer<T> notify;
+		final boolean active;
+
+		Subscriber(Object owner, Consumer<T> notify, boolean active) {
+			this.owner = owner;
+			this.notify = notify;
+			this.active = active;
+		}
+
+		@SuppressWarnings("unchecked")
+		static <T> Subscriber<T>[] none() {
+			return (Subscriber<T>[]) NONE;
+		}
+
+		static <T> int indexOf(Subscriber<T>[] list, Object owner) {
+			for (int i = 0; i < list.length; i++) {
+				if (list[i].owner.equals(owner)) return i;
+			}
+			return -1;
+		}
+
+		static <T> Subscriber<T>[] append(Subscriber<T>[] list, Subscriber<T> subscriber) {
+			Subscriber<T>[] copy = Arrays.copyOf(list, list.length + 1);
+			copy[list.length] = subscriber;
+			return copy;
+		}
+
+		static <T> Subscriber<T>[] remove(Subscriber<T>[] list, int idx) {
+			Subscriber<T>[] copy = Arrays.copyOf(list, list.length - 1);
+			System.arraycopy(list, idx + 1, copy, idx, list.length - idx - 1);
+			return copy;
+		}
 	}
 }
@@ -0,0 +1,104 @@
+package cloudaws.concurrent;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs one task per item, at most {@code parallelism} at a time, and hands each item's outcome over as
+ * soon as it finishes. A failing item does not stop the others.
+ */
+public final class BoundedFanOut {
+
+	private BoundedFanOut() {}
+
+	/**
+	 * Turns an item's outcome into the caller's result type.
+	 */
+	@FunctionalInterface
+	public interface Outcome<I, T, R> {
+		/**
+		 * @param value null if the task failed
+		 * @param error null if the task succeeded; already unwrapped
+		 * @param elapsed ms from the start of the task
+		 */
+		R of(I item, T value, Throwable error, long elapsed);
+	}
+
+	/**
+	 * Completes with one result per item, in the order the items were given.
+	 * Cancelling the returned future stops items that have not started yet.
+	 */
+	public static <I, T, R> CompletableFuture<List<R>> run(List<I> items, int parallelism, Function<I, CompletableFuture<T>> task, Outcome<I, T, R> outcome, Consumer<R> onResult) {
+		Object[] results = new Object[items.size()];
+		Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+		for (int i = 0; i < items.size(); i++) queue.add(i);
+		AtomicInteger remaining = new AtomicInteger(items.size());
+		CompletableFuture<List<R>> done = new CompletableFuture<>();
+
+		if (items.isEmpty()) {
+			done.complete(Collections.emptyList());
+			return done;
+		}
+
+		// Completions only hand a slot back; whichever thread is draining starts the next items, so tasks
+		// that complete synchronously loop here instead of nesting one stack frame per item.
+		AtomicInteger slots = new AtomicInteger(Math.max(1, parallelism));
+		AtomicInteger wip = new AtomicInteger();
+		Runnable[] drain = new Runnable[1];
+		drain[0] = () -> {
+			if (wip.getAndIncrement() != 0) return;
+			do {
+				while (slots.get() > 0 && !done.isDone()) {
+					Integer index = queue.poll();
+					if (index == null) break;
+					slots.decrementAndGet();
+
+					I item = items.get(index);
+					long started = System.currentTimeMillis();
+					CompletableFuture<T> call;
+					try {
+						call = task.apply(item);
+					} catch (RuntimeException ex) {
+						call = new CompletableFuture<>();
+						call.completeExceptionally(ex);
+					}
+
+					call.whenComplete((value, error) -> {
+						R result = outcome.of(item, error == null ? value : null, FutureUtils.unwrap(error), System.currentTimeMillis() - started);
+						synchronized (results) {
+							results[index] = result;
+						}
+						try {
+							if (onResult != null) onResult.accept(result);
+						} catch (RuntimeException ex) {
+							System.err.println("Result handler failed: " + ex.getMessage());
+						}
+
+						if (remaining.decrementAndGet() == 0) {
+							List<R> ordered = new ArrayList<>(results.length);
+							synchronized (results) {
+								for (Object each : results) {
+									@SuppressWarnings("unchecked")
+									R typed = (R) each;
+									ordered.add(typed);
+								}
+							}
+							done.complete(Collections.unmodifiableList(ordered));
+						}
+						else {
+							slots.incrementAndGet();
+							drain[0].run();
+						}
+					});
+				}
+			} while (wip.decrementAndGet() != 0);
+		};
+
+		drain[0].run();
+		return done;
+	}
+}
@@ -0,0 +1,91 @@
+package cloudaws.concurrent;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keyed difference between two consecutive snapshots of a collection binding.
+ */
+public final class Delta<K, V> {
+	private final Map<K, V> added = new LinkedHashMap<>();
+	private final Map<K, V> removed = new LinkedHashMap<>();
+	private final Map<K, V> changed = new LinkedHashMap<>();
+	private final Map<K, V> snapshot;
+
+	private Delta(Map<K, V> snapshot) {
+		this.snapshot = Collections.unmodifiableMap(snapshot);
+	}
+
+	public Map<K, V> getAdded() {
+		return Collections.unmodifiableMap(added);
+	}
+
+	public Map<K, V> getRemoved() {
+		return Collections.unmodifiableMap(removed);
+	}
+
+	public Map<K, V> getChanged() {
+		return Collections.unmodifiableMap(changed);
+	}
+
+	/**
+	 * The full keyed state after this delta was applied.
+	 */
+	public Map<K, V> getSnapshot() {
+		return snapshot;
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	public static <K, V> Delta<K, V> diff(Map<K, V> previous, Collection<V> next, Function<V, K> key, BiPredicate<V, V> same) {
+		Map<K, V> current = new LinkedHashMap<>(Math.max(16, next.size() * 4 / 3 + 1));
+		for (V value : next) current.put(key.apply(value), value);
+
+		Delta<K, V> delta = new Delta<>(current);
+		current.forEach((k, v) -> {
+			V old = previous.get(k);
+			if (old == null) delta.added.put(k, v);
+			else if (!same.test(old, v)) delta.changed.put(k, v);
+		});
+		previous.forEach((k, v) -> {
+			if (!current.containsKey(k)) delta.removed.put(k, v);
+		});
+
+		return delta;
+	}
+
+	public static <K, V> Consumer<List<V>> keyed(Function<V, K> key, Consumer<Delta<K, V>> notify) {
+		return keyed(key, Objects::equals, notify);
+	}
+
+	/**
+	 * Adapts a delta consumer to a plain {@link Binding} notifier. Each notifier keeps the last
+	 * state it delivered, so a paused subscriber receives the accumulated delta once resumed,
+	 * and cycles that changed nothing are not delivered at all (except the very first one).
+	 */
+	public static <K, V> Consumer<List<V>> keyed(Function<V, K> key, BiPredicate<V, V> same, Consumer<Delta<K, V>> notify) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(same);
+		Objects.requireNonNull(notify);
+
+		return new Consumer<List<V>>() {
+			private Map<K, V> last = Collections.emptyMap();
+			private boolean primed = false;
+
+			@Override
+			public synchronized void accept(List<V> list) {
+				Delta<K, V> delta = diff(last, list != null ? list : Collections.emptyList(), key, same);
+				last = delta.snapshot;
+
+				if (!primed || !delta.isEmpty()) {
+					primed = true;
+					notify.accept(delta);
+				}
+			}
+		};
+	}
+}
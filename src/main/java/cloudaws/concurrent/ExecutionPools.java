@@ -0,0 +1,211 @@
+package cloudaws.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The three execution pools of the application, kept apart so that work of one kind cannot starve another:
+ * <ul>
+ *     <li>scheduler: timing only (binding refresh, polling fallbacks); tasks must return immediately.</li>
+ *     <li>completion: short non-blocking continuations such as completing promises and dispatching bindings.</li>
+ *     <li>io: blocking work such as SSH sessions. Virtual threads on JDK 21+, otherwise a bounded pool
+ *     whose threads retire when idle.</li>
+ * </ul>
+ * Sizes are read from {@code cloudaws.pool.*} system properties.
+ */
+public final class ExecutionPools {
+	private static final String PREFIX = "cloudaws.pool.";
+
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final ThreadPoolExecutor completion;
+	private final ExecutorService io;
+
+	private final Rejections schedulerRejections = new Rejections();
+	private final Rejections completionRejections = new Rejections();
+	private final Rejections ioRejections = new Rejections();
+
+	public static ExecutionPools fromSystemProperties() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		return new ExecutionPools(
+				Integer.getInteger(PREFIX + "scheduler.threads", 1),
+				Integer.getInteger(PREFIX + "completion.threads", Math.max(2, cores)),
+				Integer.getInteger(PREFIX + "io.threads", 32),
+				Integer.getInteger(PREFIX + "io.queue", 1024),
+				Boolean.parseBoolean(System.getProperty(PREFIX + "io.virtual", "true"))
+		);
+	}
+
+	public ExecutionPools(int schedulerThreads, int completionThreads, int ioThreads, int ioQueue, boolean virtualIo) {
+		scheduler = new ScheduledThreadPoolExecutor(Math.max(1, schedulerThreads), named("SCHEDULER"), schedulerRejections);
+		scheduler.setRemoveOnCancelPolicy(true);
+
+		completion = new ThreadPoolExecutor(
+				Math.max(1, completionThreads), Math.max(1, completionThreads),
+				60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				named("COMPLETION"), completionRejections
+		);
+
+		ExecutorService virtual = virtualIo ? virtualThreads() : null;
+		if (virtual != null) {
+			io = new CountingExecutor(virtual, ioRejections);
+		}
+		else {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(
+					Math.max(1, ioThreads), Math.max(1, ioThreads),
+					60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(Math.max(1, ioQueue)),
+					named("IO"), ioRejections
+			);
+			pool.allowCoreThreadTimeOut(true);
+			io = pool;
+		}
+	}
+
+	public ScheduledExecutorService scheduler() {
+		return scheduler;
+	}
+
+	public ExecutorService completion() {
+		return completion;
+	}
+
+	public ExecutorService io() {
+		return io;
+	}
+
+	public boolean isVirtualIo() {
+		return io instanceof CountingExecutor;
+	}
+
+	public List<PoolStats> stats() {
+		return Arrays.asList(
+				stats("scheduler", "scheduled", scheduler, schedulerRejections),
+				stats("completion", "fixed", completion, completionRejections),
+				io instanceof CountingExecutor ?
+						((CountingExecutor) io).stats("io") :
+						stats("io", "elastic", (ThreadPoolExecutor) io, ioRejections)
+		);
+	}
+
+	public PoolStats stats(String name) {
+		for (PoolStats stats : stats()) {
+			if (stats.getName().equals(name)) return stats;
+		}
+		throw new IllegalArgumentException("No such pool: " + name);
+	}
+
+	public void shutdown() {
+		scheduler.shutdown();
+		completion.shutdown();
+		io.shutdown();
+	}
+
+	private static PoolStats stats(String name, String kind, ThreadPoolExecutor pool, Rejections rejections) {
+		return new PoolStats(
+				name, kind,
+				pool.getPoolSize(), pool.getActiveCount(),
+				pool.getQueue().size(), pool.getCompletedTaskCount(),
+				rejections.count.get()
+		);
+	}
+
+	private static ExecutorService virtualThreads() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			// Running on a JDK without virtual threads.
+			return null;
+		}
+	}
+
+	private static ThreadFactory named(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(false);
+			return thread;
+		};
+	}
+
+	private static final class Rejections implements RejectedExecutionHandler {
+		private final AtomicLong count = new AtomicLong();
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			count.incrementAndGet();
+			throw new RejectedExecutionException("Task " + r + " rejected from " + executor);
+		}
+	}
+
+	/**
+	 * Adds the bookkeeping a thread-per-task executor does not keep by itself.
+	 */
+	private static final class CountingExecutor extends AbstractExecutorService {
+		private final ExecutorService delegate;
+		private final Rejections rejections;
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicLong queued = new AtomicLong();
+		private final AtomicLong completed = new AtomicLong();
+
+		CountingExecutor(ExecutorService delegate, Rejections rejections) {
+			this.delegate = delegate;
+			this.rejections = rejections;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			queued.incrementAndGet();
+			try {
+				delegate.execute(() -> {
+					queued.decrementAndGet();
+					active.incrementAndGet();
+					try {
+						command.run();
+					} finally {
+						active.decrementAndGet();
+						completed.incrementAndGet();
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				queued.decrementAndGet();
+				rejections.count.incrementAndGet();
+				throw ex;
+			}
+		}
+
+		PoolStats stats(String name) {
+			return new PoolStats(name, "virtual", active.get(), active.get(), queued.get(), completed.get(), rejections.count.get());
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
@@ -2,11 +2,17 @@ package cloudaws.concurrent;
 
 import cloudaws.Main;
 
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class FutureUtils {
-	static final ScheduledExecutorService SERVICE = Main.PROMISE_POOL;
+	static final ScheduledExecutorService SERVICE = Main.SCHEDULER;
+	static final ExecutorService COMPLETION = Main.COMPLETION_POOL;
+	static final HashedWheelTimer TIMER = Main.TIMER;
 	static long ENQUEUE_DELAY = 1;
 
 	static void enqueue(Runnable r) {
@@ -16,4 +22,28 @@ public class FutureUtils {
 	static void enqueue(Runnable r, TimeUnit unit) {
 		if (SERVICE != null) SERVICE.schedule(r, ENQUEUE_DELAY, unit);
 	}
+
+	static void complete(Runnable r) {
+		try {
+			if (COMPLETION != null) COMPLETION.execute(r);
+			else r.run();
+		} catch (RejectedExecutionException ex) {
+			// Shutting down; finish on the caller's thread rather than dropping the result.
+			r.run();
+		}
+	}
+
+	/**
+	 * The error a failed stage actually failed with, without the wrappers added by dependent stages and {@code get()}.
+	 */
+	public static Throwable unwrap(Throwable error) {
+		while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+			error = error.getCause();
+		}
+		return error;
+	}
+
+	static HashedWheelTimer.Timeout schedule(Runnable r, long delay) {
+		return TIMER != null ? TIMER.schedule(r, delay) : null;
+	}
 }
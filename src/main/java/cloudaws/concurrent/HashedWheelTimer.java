@@ -0,0 +1,252 @@
+package cloudaws.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single-threaded timer for large numbers of short-lived deadlines.
+ * Registering and cancelling a timeout are O(1) queue offers; the worker thread moves them
+ * into wheel buckets and fires every expired entry of a tick as one batch.
+ * The worker parks while nothing is pending, so an idle timer costs no wakeups.
+ */
+public final class HashedWheelTimer {
+	private static final int ST_INIT = 0, ST_STARTED = 1, ST_STOPPED = 2;
+
+	private final String name;
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+
+	private final Queue<Timeout> registrations = new ConcurrentLinkedQueue<>();
+	private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+	private final AtomicLong pending = new AtomicLong();
+	private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+	private volatile Thread worker;
+	private volatile long startTime;
+	private long tick;
+
+	public HashedWheelTimer(String name, long tickMillis, int ticksPerWheel) {
+		if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+		if (ticksPerWheel <= 0) throw new IllegalArgumentException("ticksPerWheel must be positive: " + ticksPerWheel);
+
+		int size = 1;
+		while (size < ticksPerWheel) size <<= 1;
+
+		this.name = name;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+		this.mask = size - 1;
+	}
+
+	public Timeout schedule(Runnable task, long delay) {
+		return schedule(task, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Once the timer is stopped, the task is dropped and the returned timeout is already cancelled:
+	 * work scheduled during shutdown is ignored rather than failing its caller.
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		if (task == null) throw new NullPointerException("task");
+		if (!start()) {
+			Timeout dropped = new Timeout(this, task, 0);
+			dropped.state.set(Timeout.ST_CANCELLED);
+			return dropped;
+		}
+
+		Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)));
+		pending.incrementAndGet();
+		registrations.add(timeout);
+
+		LockSupport.unpark(worker);
+		return timeout;
+	}
+
+	public long pending() {
+		return pending.get();
+	}
+
+	public void stop() {
+		if (state.getAndSet(ST_STOPPED) == ST_STARTED) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	// False once the timer has been stopped.
+	private boolean start() {
+		switch (state.get()) {
+			case ST_INIT:
+				if (state.compareAndSet(ST_INIT, ST_STARTED)) {
+					startTime = System.nanoTime();
+					Thread thread = new Thread(this::run, name);
+					thread.setDaemon(true);
+					worker = thread;
+					thread.start();
+				}
+				break;
+			case ST_STOPPED:
+				return false;
+			default:
+				break;
+		}
+		while (worker == null) {
+			if (state.get() == ST_STOPPED) return false;
+			Thread.yield();
+		}
+		return true;
+	}
+
+	private void run() {
+		List<Timeout> expired = new ArrayList<>();
+
+		while (state.get() == ST_STARTED) {
+			long deadline = waitForNextTick();
+			if (deadline < 0) continue;
+
+			processCancellations();
+			transferRegistrations();
+			wheel[(int) (tick & mask)].expire(deadline, expired);
+			tick++;
+
+			for (Timeout timeout : expired) timeout.fire();
+			expired.clear();
+		}
+	}
+
+	private long waitForNextTick() {
+		if (pending.get() == 0 && registrations.isEmpty()) {
+			processCancellations();
+			LockSupport.park(this);
+			// Nothing sat on the wheel meanwhile, so realign with the clock rather than replaying idle ticks.
+			tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+			return -1;
+		}
+
+		long deadline = tickNanos * (tick + 1);
+		long sleep = deadline - (System.nanoTime() - startTime);
+		if (sleep > 0) {
+			LockSupport.parkNanos(this, sleep);
+			return -1;
+		}
+		return deadline;
+	}
+
+	private void transferRegistrations() {
+		Timeout timeout;
+		while ((timeout = registrations.poll()) != null) {
+			if (timeout.state.get() != Timeout.ST_INIT) continue;
+
+			long calculated = timeout.deadline / tickNanos;
+			timeout.rounds = (calculated - tick) / wheel.length;
+			wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+		}
+	}
+
+	private void processCancellations() {
+		Timeout timeout;
+		while ((timeout = cancellations.poll()) != null) {
+			if (timeout.bucket != null) timeout.bucket.remove(timeout);
+		}
+	}
+
+	public static final class Timeout {
+		private static final int ST_INIT = 0, ST_CANCELLED = 1, ST_EXPIRED = 2;
+
+		private final HashedWheelTimer timer;
+		private final Runnable task;
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+		// Owned by the worker thread.
+		private long rounds;
+		private Bucket bucket;
+		private Timeout prev, next;
+
+		private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+			this.timer = timer;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		public boolean cancel() {
+			if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) return false;
+
+			timer.pending.decrementAndGet();
+			timer.cancellations.add(this);
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return state.get() == ST_CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state.get() == ST_EXPIRED;
+		}
+
+		private void fire() {
+			if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) return;
+
+			timer.pending.decrementAndGet();
+			try {
+				task.run();
+			} catch (Throwable t) {
+				System.err.println("Timer task failed: " + t);
+			}
+		}
+	}
+
+	private static final class Bucket {
+		private Timeout head, tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			}
+			else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void expire(long deadline, List<Timeout> expired) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.state.get() != Timeout.ST_INIT) {
+					remove(timeout);
+				}
+				else if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+					remove(timeout);
+					expired.add(timeout);
+				}
+				else {
+					timeout.rounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.bucket != this) return;
+
+			if (timeout.prev != null) timeout.prev.next = timeout.next;
+			if (timeout.next != null) timeout.next.prev = timeout.prev;
+			if (timeout == head) head = timeout.next;
+			if (timeout == tail) tail = timeout.prev;
+
+			timeout.prev = timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+}
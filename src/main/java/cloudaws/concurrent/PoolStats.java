@@ -0,0 +1,55 @@
+package cloudaws.concurrent;
+
+public final class PoolStats {
+	private final String name;
+	private final String kind;
+	private final int threads;
+	private final int active;
+	private final long queued;
+	private final long completed;
+	private final long rejected;
+
+	PoolStats(String name, String kind, int threads, int active, long queued, long completed, long rejected) {
+		this.name = name;
+		this.kind = kind;
+		this.threads = threads;
+		this.active = active;
+		this.queued = queued;
+		this.completed = completed;
+		this.rejected = rejected;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getActive() {
+		return active;
+	}
+
+	public long getQueued() {
+		return queued;
+	}
+
+	public long getCompleted() {
+		return completed;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s] threads=%d active=%d queued=%d completed=%d rejected=%d",
+				name, kind, threads, active, queued, completed, rejected);
+	}
+}
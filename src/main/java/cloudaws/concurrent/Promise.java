@@ -1,32 +1,108 @@
 package cloudaws.concurrent;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.*;
 
 public class Promise<T> extends CompletableFuture<T> {
-	private final Future<T> future;
+	public static final long DEFAULT_TIMEOUT = 10000;
+
+	private volatile Future<?> source;
+	private final HashedWheelTimer.Timeout deadline;
 
 	private final long enqueued;
 	private final long timeout;
 
-	public Promise(Future<T> future) {
-		this(future, 10000);
+	public Promise() {
+		this(DEFAULT_TIMEOUT);
 	}
 
-	public Promise(Future<T> future, long timeout) {
-		this.future = future;
+	/**
+	 * Creates a promise that is completed by a push from its producer
+	 * (e.g. an SDK callback). Nothing is polled; only the deadline is scheduled.
+	 */
+	public Promise(long timeout) {
 		this.timeout = Math.max(1, timeout);
 		this.enqueued = System.currentTimeMillis();
 
-		FutureUtils.enqueue(this::loop);
+		this.deadline = FutureUtils.schedule(this::expire, this.timeout);
+		this.whenComplete((res, err) -> {
+			if (this.deadline != null) this.deadline.cancel();
+		});
+	}
+
+	public Promise(Future<T> future) {
+		this(future, DEFAULT_TIMEOUT);
+	}
+
+	public Promise(Future<T> future, long timeout) {
+		this(timeout);
+		this.bind(future);
+
+		if (future instanceof CompletionStage) {
+			@SuppressWarnings("unchecked")
+			CompletionStage<T> stage = (CompletionStage<T>) future;
+			stage.whenComplete((res, err) -> {
+				if (err == null) complete(res);
+				else if (err instanceof CancellationException) cancel(true);
+				else completeExceptionally(err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+			});
+		}
+		else {
+			// Opaque futures cannot notify us, so fall back to polling them.
+			FutureUtils.enqueue(this::loop);
+		}
+	}
+
+	/**
+	 * Attaches the underlying task so that cancelling this promise cancels it too.
+	 */
+	public Promise<T> bind(Future<?> source) {
+		this.source = source;
+		if (source != null && isCancelled()) source.cancel(true);
+		return this;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+		Future<?> src = this.source;
+		if (cancelled && src != null && !src.isDone()) src.cancel(mayInterruptIfRunning);
+		return cancelled;
+	}
+
+	/**
+	 * Completes on the completion pool, so dependent stages never run on the producer's
+	 * I/O thread or on the timer thread.
+	 */
+	public void resolve(T value) {
+		FutureUtils.complete(() -> complete(value));
+	}
+
+	public void reject(Throwable error) {
+		FutureUtils.complete(() -> completeExceptionally(error));
+	}
+
+	private void expire() {
+		Future<?> src = this.source;
+		if (isDone()) return;
+
+		reject(new TimeoutException("Future timed out: " + (src != null ? src : this)));
+		// Nobody will read the result any more, so let the underlying task go.
+		if (src != null && !src.isDone()) src.cancel(true);
 	}
 
 	private void loop() {
-		if (future.isDone()) {
+		Future<?> future = this.source;
+		if (isDone() || future == null) return;
+
+		if (future.isCancelled()) {
+			cancel(true);
+		}
+		else if (future.isDone()) {
 			try {
-				complete(future.get());
+				@SuppressWarnings("unchecked")
+				T result = (T) future.get();
+				complete(result);
 			} catch (InterruptedException e) {
 				completeExceptionally(e);
 
@@ -34,16 +110,8 @@ public class Promise<T> extends CompletableFuture<T> {
 				completeExceptionally(e.getCause());
 			}
 		}
-		else if (future.isCancelled()) {
-			cancel(true);
-		}
-		else {
-			if (System.currentTimeMillis() - enqueued < timeout) {
-				FutureUtils.enqueue(this::loop);
-			}
-			else {
-				completeExceptionally(new TimeoutException("Future timed out: " + future));
-			}
+		else if (System.currentTimeMillis() - enqueued < timeout) {
+			FutureUtils.enqueue(this::loop);
 		}
 	}
 }
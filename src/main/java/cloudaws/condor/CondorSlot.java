@@ -0,0 +1,130 @@
+package cloudaws.condor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One slot ad from {@code condor_status}. Only the requested attributes are filled in;
+ * the others are null.
+ */
+public final class CondorSlot {
+
+	public enum Attribute {
+		NAME("Name"),
+		MACHINE("Machine"),
+		OP_SYS("OpSys"),
+		ARCH("Arch"),
+		STATE("State"),
+		ACTIVITY("Activity"),
+		LOAD_AVG("LoadAvg"),
+		MEMORY("Memory"),
+		CPUS("Cpus"),
+		ENTERED_CURRENT_ACTIVITY("EnteredCurrentActivity"),
+		MY_CURRENT_TIME("MyCurrentTime");
+
+		// ClassAd attribute names are case-insensitive.
+		private static final Map<String, Attribute> BY_NAME = new HashMap<>();
+		static {
+			for (Attribute attribute : values()) BY_NAME.put(attribute.classAdName.toLowerCase(Locale.ROOT), attribute);
+		}
+
+		private final String classAdName;
+
+		Attribute(String classAdName) {
+			this.classAdName = classAdName;
+		}
+
+		public String getClassAdName() {
+			return classAdName;
+		}
+
+		static Attribute of(String classAdName) {
+			return BY_NAME.get(classAdName.toLowerCase(Locale.ROOT));
+		}
+	}
+
+	private String name, machine, opSys, arch, state, activity;
+	private Double loadAvg;
+	private Long memory, enteredCurrentActivity, myCurrentTime;
+	private Integer cpus;
+
+	CondorSlot() {}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getMachine() {
+		return machine;
+	}
+
+	public String getOpSys() {
+		return opSys;
+	}
+
+	public String getArch() {
+		return arch;
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public String getActivity() {
+		return activity;
+	}
+
+	public Double getLoadAvg() {
+		return loadAvg;
+	}
+
+	/**
+	 * In MB.
+	 */
+	public Long getMemory() {
+		return memory;
+	}
+
+	public Integer getCpus() {
+		return cpus;
+	}
+
+	/**
+	 * Seconds spent in the current activity, as of when the collector last heard from the slot;
+	 * null unless both {@code EnteredCurrentActivity} and {@code MyCurrentTime} were requested.
+	 */
+	public Long getActivityTime() {
+		if (enteredCurrentActivity == null || myCurrentTime == null) return null;
+		return Math.max(0, myCurrentTime - enteredCurrentActivity);
+	}
+
+	// Expressions and undefined values come out of -json as strings or null, and are left unset.
+	void set(Attribute attribute, JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) return;
+
+		switch (attribute) {
+			case NAME: name = parser.getValueAsString(); break;
+			case MACHINE: machine = parser.getValueAsString(); break;
+			case OP_SYS: opSys = parser.getValueAsString(); break;
+			case ARCH: arch = parser.getValueAsString(); break;
+			case STATE: state = parser.getValueAsString(); break;
+			case ACTIVITY: activity = parser.getValueAsString(); break;
+			default:
+				if (!token.isNumeric()) return;
+				switch (attribute) {
+					case LOAD_AVG: loadAvg = parser.getDoubleValue(); break;
+					case MEMORY: memory = parser.getLongValue(); break;
+					case CPUS: cpus = parser.getIntValue(); break;
+					case ENTERED_CURRENT_ACTIVITY: enteredCurrentActivity = parser.getLongValue(); break;
+					case MY_CURRENT_TIME: myCurrentTime = parser.getLongValue(); break;
+					default: break;
+				}
+		}
+	}
+}
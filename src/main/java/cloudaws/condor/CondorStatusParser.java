@@ -0,0 +1,86 @@
+package cloudaws.condor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Parses {@code condor_status -json} output as it arrives, with Jackson's non-blocking parser,
+ * and hands over each slot as soon as its ad is complete. Nothing but the ad being read is kept,
+ * and attributes other than the {@link CondorSlot.Attribute}s are skipped without being decoded.
+ */
+final class CondorStatusParser {
+	private static final JsonFactory JSON = new JsonFactory();
+
+	private final JsonParser parser;
+	private final ByteArrayFeeder feeder;
+	private final Consumer<CondorSlot> onSlot;
+
+	// 0 outside the list, 1 inside it, 2 inside an ad, deeper inside a nested value.
+	private int depth = 0;
+	private CondorSlot current;
+	private CondorSlot.Attribute field;
+	private int count = 0;
+
+	CondorStatusParser(Consumer<CondorSlot> onSlot) throws IOException {
+		this.parser = JSON.createNonBlockingByteArrayParser();
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+		this.onSlot = onSlot;
+	}
+
+	/**
+	 * Parses what it can of the next bytes; a token cut off at the end is completed by the next call.
+	 * The array may be reused once this returns.
+	 */
+	void feed(byte[] b, int off, int len) throws IOException {
+		feeder.feedInput(b, off, off + len);
+		drain();
+	}
+
+	void end() throws IOException {
+		feeder.endOfInput();
+		drain();
+		if (depth != 0) throw new JsonParseException(parser, "condor_status output ended inside the slot list");
+	}
+
+	/**
+	 * Slots handed over so far.
+	 */
+	int count() {
+		return count;
+	}
+
+	private void drain() throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			switch (token) {
+				case START_ARRAY:
+				case START_OBJECT:
+					if (depth == 0 && token != JsonToken.START_ARRAY) throw new JsonParseException(parser, "Expected a list of slot ads");
+					if (depth == 1 && token == JsonToken.START_OBJECT) current = new CondorSlot();
+					depth++;
+					break;
+				case END_ARRAY:
+				case END_OBJECT:
+					depth--;
+					if (depth == 1 && current != null) {
+						count++;
+						onSlot.accept(current);
+						current = null;
+					}
+					break;
+				case FIELD_NAME:
+					if (depth == 2) field = CondorSlot.Attribute.of(parser.getCurrentName());
+					break;
+				default:
+					if (depth == 2 && current != null && field != null) current.set(field, parser);
+					break;
+			}
+		}
+	}
+}
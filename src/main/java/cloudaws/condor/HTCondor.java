@@ -0,0 +1,92 @@
+package cloudaws.condor;
+
+import cloudaws.ssh.EC2SecureShell;
+import cloudaws.ssh.OutputLimits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * HTCondor queries run over SSH on a pool's central manager. Output is requested as JSON and limited
+ * to the attributes the caller needs, so a pool with thousands of slots costs little to transfer and parse.
+ */
+public final class HTCondor {
+	/** What the default {@code condor_status} table shows. */
+	public static final Set<CondorSlot.Attribute> STATUS_TABLE = Collections.unmodifiableSet(EnumSet.of(
+			CondorSlot.Attribute.NAME,
+			CondorSlot.Attribute.OP_SYS,
+			CondorSlot.Attribute.ARCH,
+			CondorSlot.Attribute.STATE,
+			CondorSlot.Attribute.ACTIVITY,
+			CondorSlot.Attribute.LOAD_AVG,
+			CondorSlot.Attribute.MEMORY,
+			CondorSlot.Attribute.ENTERED_CURRENT_ACTIVITY,
+			CondorSlot.Attribute.MY_CURRENT_TIME
+	));
+
+	private final EC2SecureShell shell;
+
+	public HTCondor(EC2SecureShell shell) {
+		this.shell = shell;
+	}
+
+	public CompletableFuture<List<CondorSlot>> status(Set<CondorSlot.Attribute> attributes, long timeout) {
+		List<CondorSlot> slots = new ArrayList<>();
+		return status(attributes, timeout, slots::add).thenApply(count -> Collections.unmodifiableList(slots));
+	}
+
+	/**
+	 * Runs {@code condor_status} and passes each slot to {@code onSlot} as it is parsed, on an I/O thread.
+	 * Completes with the number of slots, or fails if the command exits with a non-zero status or
+	 * its output is not a list of slot ads.
+	 */
+	public CompletableFuture<Integer> status(Set<CondorSlot.Attribute> attributes, long timeout, Consumer<CondorSlot> onSlot) {
+		String command = statusCommand(attributes);
+		CondorStatusParser parser;
+		try {
+			parser = new CondorStatusParser(onSlot);
+		} catch (IOException ex) {
+			CompletableFuture<Integer> failed = new CompletableFuture<>();
+			failed.completeExceptionally(ex);
+			return failed;
+		}
+
+		// Stdout goes straight from the channel's read buffer into the parser; only stderr is kept, for the error message.
+		EC2SecureShell.OutputSink sink = (buffer, off, len) -> {
+			try {
+				parser.feed(buffer, off, len);
+			} catch (IOException ex) {
+				throw new IOException("Unreadable output from `" + command + "`: " + ex.getMessage(), ex);
+			}
+		};
+
+		return shell.exec("", command, timeout, null, OutputLimits.DEFAULT, sink).thenApply(result -> {
+			if (!result.isSuccess()) {
+				String reason = result.getStderr().isEmpty() ? "" : ": " + result.getStderr().get(0);
+				throw new CompletionException(new IOException("`" + command + "` exited with " + result.getExitStatus() + reason));
+			}
+			try {
+				parser.end();
+			} catch (IOException ex) {
+				throw new CompletionException(new IOException("Unreadable output from `" + command + "`: " + ex.getMessage(), ex));
+			}
+			return parser.count();
+		});
+	}
+
+	// Attribute names are fixed identifiers, so the command needs no quoting.
+	static String statusCommand(Set<CondorSlot.Attribute> attributes) {
+		String projection = attributes.stream()
+				.map(CondorSlot.Attribute::getClassAdName)
+				.collect(Collectors.joining(","));
+		return projection.isEmpty() ? "condor_status -json" : "condor_status -json -attributes " + projection;
+	}
+}
@@ -0,0 +1,26 @@
+package cloudaws.ec2;
+
+import cloudaws.concurrent.Promise;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+
+public class AsyncPromise<REQ extends AmazonWebServiceRequest, RES> extends Promise<RES> implements AsyncHandler<REQ, RES> {
+
+	public AsyncPromise() {
+		super();
+	}
+
+	public AsyncPromise(long timeout) {
+		super(timeout);
+	}
+
+	@Override
+	public void onError(Exception exception) {
+		reject(exception);
+	}
+
+	@Override
+	public void onSuccess(REQ request, RES result) {
+		resolve(result);
+	}
+}
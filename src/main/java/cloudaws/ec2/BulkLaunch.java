@@ -0,0 +1,202 @@
+package cloudaws.ec2;
+
+import cloudaws.concurrent.FutureUtils;
+import com.amazonaws.AmazonServiceException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Launches {@code count} instances spread over several availability zones, one request per zone at a
+ * time. What a zone cannot place (a capacity error, or fewer instances than asked for) is retried in
+ * the zones that have not run out yet. Every instance has its own future, in launch order.
+ */
+public final class BulkLaunch {
+	// The zone is out of this instance type for now; other zones may still have it.
+	private static final Set<String> CAPACITY_ERRORS = new HashSet<>(Arrays.asList(
+			"InsufficientInstanceCapacity",
+			"InsufficientHostCapacity",
+			"InsufficientReservedInstanceCapacity",
+			"InsufficientCapacity",
+			"Unsupported"
+	));
+
+	@FunctionalInterface
+	public interface Launcher {
+		/**
+		 * Launches between 1 and {@code count} instances in {@code zone}.
+		 */
+		CompletableFuture<List<InstanceSnapshot>> launch(String zone, int count);
+	}
+
+	/**
+	 * An instance that was launched but could not be finished, e.g. named; it exists and runs all the same.
+	 */
+	public static final class UnfinishedException extends RuntimeException {
+		private final InstanceSnapshot instance;
+
+		UnfinishedException(InstanceSnapshot instance, Throwable cause) {
+			super("Launched " + instance.getInstanceId() + " but failed to finish it: " + cause.getMessage(), cause);
+			this.instance = instance;
+		}
+
+		public InstanceSnapshot getInstance() {
+			return instance;
+		}
+	}
+
+	private final Launcher launcher;
+	private final BiFunction<InstanceSnapshot, Integer, CompletableFuture<InstanceSnapshot>> finisher;
+	private final List<CompletableFuture<InstanceSnapshot>> futures;
+	private final Deque<Integer> unassigned = new ArrayDeque<>();
+	private final Set<String> exhausted = new HashSet<>();
+	private final List<String> zones;
+	private int nextZone = 0;
+	private int inFlight = 0;
+	private Throwable lastError;
+
+	private BulkLaunch(int count, List<String> zones, Launcher launcher, BiFunction<InstanceSnapshot, Integer, CompletableFuture<InstanceSnapshot>> finisher) {
+		this.launcher = launcher;
+		this.finisher = finisher;
+		this.zones = new ArrayList<>(new LinkedHashSet<>(zones));
+		this.futures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			futures.add(new CompletableFuture<>());
+			unassigned.add(i);
+		}
+	}
+
+	/**
+	 * @param finisher called with each launched instance and its index (from 0), e.g. to name it
+	 * @return one future per instance, in index order; one whose finisher failed fails with an
+	 * {@link UnfinishedException} that still carries the instance
+	 */
+	public static List<CompletableFuture<InstanceSnapshot>> run(int count, List<String> zones, Launcher launcher, BiFunction<InstanceSnapshot, Integer, CompletableFuture<InstanceSnapshot>> finisher) {
+		BulkLaunch launch = new BulkLaunch(Math.max(0, count), zones, launcher, finisher);
+		if (launch.zones.isEmpty()) {
+			launch.failRemaining(new IllegalArgumentException("No availability zone to launch in."));
+		}
+		else {
+			launch.start();
+		}
+		return Collections.unmodifiableList(launch.futures);
+	}
+
+	/**
+	 * Launch counts per zone, as even as possible; earlier zones get the remainder.
+	 */
+	static int[] spread(int count, int zones) {
+		int[] counts = new int[zones];
+		for (int i = 0; i < zones; i++) counts[i] = count / zones + (i < count % zones ? 1 : 0);
+		return counts;
+	}
+
+	private void start() {
+		int[] counts = spread(unassigned.size(), zones.size());
+		List<Runnable> calls = new ArrayList<>();
+		synchronized (this) {
+			for (int i = 0; i < zones.size(); i++) {
+				if (counts[i] == 0) continue;
+				String zone = zones.get(i);
+				int count = counts[i];
+				inFlight++;
+				calls.add(() -> send(zone, count));
+			}
+		}
+		calls.forEach(Runnable::run);
+	}
+
+	private void send(String zone, int count) {
+		CompletableFuture<List<InstanceSnapshot>> call;
+		try {
+			call = launcher.launch(zone, count);
+		} catch (RuntimeException ex) {
+			call = new CompletableFuture<>();
+			call.completeExceptionally(ex);
+		}
+		call.whenComplete((launched, error) -> onLaunched(zone, count, launched, FutureUtils.unwrap(error)));
+	}
+
+	private void onLaunched(String zone, int requested, List<InstanceSnapshot> launched, Throwable error) {
+		Map<Integer, InstanceSnapshot> assigned = new LinkedHashMap<>();
+		String retryZone = null;
+		int retry = 0;
+		boolean done;
+
+		synchronized (this) {
+			inFlight--;
+			int placed = 0;
+			if (error == null) {
+				for (InstanceSnapshot instance : launched) {
+					Integer index = unassigned.poll();
+					if (index == null) break;
+					assigned.put(index, instance);
+					placed++;
+				}
+			}
+			else {
+				lastError = error;
+			}
+
+			// A short launch means the zone ran out, same as a capacity error.
+			if (error != null ? isCapacity(error) : placed < requested) exhausted.add(zone);
+			int missing = requested - placed;
+			if (missing > 0 && (error == null || isCapacity(error))) {
+				retryZone = nextZone();
+				if (retryZone != null) {
+					retry = missing;
+					inFlight++;
+				}
+			}
+			done = inFlight == 0;
+		}
+
+		assigned.forEach(this::finish);
+		if (retryZone != null) send(retryZone, retry);
+		else if (done) failRemaining(lastError != null ? lastError : new IllegalStateException("Not enough capacity in the selected zones."));
+	}
+
+	private void finish(int index, InstanceSnapshot instance) {
+		CompletableFuture<InstanceSnapshot> future = futures.get(index);
+		if (finisher == null) {
+			future.complete(instance);
+			return;
+		}
+
+		CompletableFuture<InstanceSnapshot> finished;
+		try {
+			finished = finisher.apply(instance, index);
+		} catch (RuntimeException ex) {
+			finished = new CompletableFuture<>();
+			finished.completeExceptionally(ex);
+		}
+		finished.whenComplete((result, error) -> {
+			// The instance exists either way, so the failure keeps hold of it.
+			if (error != null) future.completeExceptionally(new UnfinishedException(instance, FutureUtils.unwrap(error)));
+			else future.complete(result != null ? result : instance);
+		});
+	}
+
+	// Called with the lock held; rotates over the zones that still have capacity.
+	private String nextZone() {
+		for (int i = 0; i < zones.size(); i++) {
+			String zone = zones.get(nextZone++ % zones.size());
+			if (!exhausted.contains(zone)) return zone;
+		}
+		return null;
+	}
+
+	private void failRemaining(Throwable error) {
+		List<Integer> remaining;
+		synchronized (this) {
+			remaining = new ArrayList<>(unassigned);
+			unassigned.clear();
+		}
+		for (int index : remaining) futures.get(index).completeExceptionally(error);
+	}
+
+	private static boolean isCapacity(Throwable error) {
+		return error instanceof AmazonServiceException && CAPACITY_ERRORS.contains(((AmazonServiceException) error).getErrorCode());
+	}
+}
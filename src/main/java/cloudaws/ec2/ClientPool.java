@@ -0,0 +1,110 @@
+package cloudaws.ec2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Regional clients kept warm (connection pool, resolved credentials, TLS sessions) across region switches.
+ * Holds up to {@code capacity} regions; the least recently used one is closed after a grace period,
+ * so requests still in flight on it can finish. The pinned region, the one in use, is never evicted.
+ */
+class ClientPool<C> {
+	static final int DEFAULT_CAPACITY = Integer.getInteger("cloudaws.ec2.clients.max", 4);
+	private static final long EVICTION_GRACE = 30000;
+
+	private final Function<String, C> factory;
+	private final Consumer<C> closer;
+	private final ScheduledExecutorService scheduler;
+	private final LinkedHashMap<String, C> clients;
+	private volatile int capacity;
+	private String pinned;
+
+	ClientPool(Function<String, C> factory, Consumer<C> closer, int capacity, ScheduledExecutorService scheduler) {
+		this.factory = factory;
+		this.closer = closer;
+		this.scheduler = scheduler;
+		this.capacity = Math.max(1, capacity);
+		this.clients = new LinkedHashMap<String, C>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, C> eldest) {
+				if (size() <= ClientPool.this.capacity) return false;
+				if (!eldest.getKey().equals(pinned)) {
+					retire(eldest.getValue());
+					return true;
+				}
+
+				// The next least recently used region goes instead.
+				Iterator<Map.Entry<String, C>> it = entrySet().iterator();
+				it.next();
+				if (it.hasNext()) {
+					retire(it.next().getValue());
+					it.remove();
+				}
+				return false;
+			}
+		};
+	}
+
+	synchronized C get(String region) {
+		C client = clients.get(region);
+		if (client == null) {
+			client = factory.apply(region);
+			clients.put(region, client);
+		}
+		return client;
+	}
+
+	/**
+	 * Like {@link #get}, and keeps {@code region} from being evicted until another region is pinned.
+	 */
+	synchronized C pin(String region) {
+		pinned = region;
+		return get(region);
+	}
+
+	/**
+	 * Raises the capacity to at least {@code capacity}; it is never lowered.
+	 */
+	synchronized void reserve(int capacity) {
+		this.capacity = Math.max(this.capacity, capacity);
+	}
+
+	synchronized List<String> regions() {
+		return new ArrayList<>(clients.keySet());
+	}
+
+	synchronized int size() {
+		return clients.size();
+	}
+
+	void shutdown() {
+		List<C> closing;
+		synchronized (this) {
+			closing = new ArrayList<>(clients.values());
+			clients.clear();
+		}
+		closing.forEach(closer);
+	}
+
+	private void retire(C client) {
+		// Without a scheduler there is no grace period.
+		if (scheduler == null) {
+			closer.accept(client);
+			return;
+		}
+		try {
+			scheduler.schedule(() -> closer.accept(client), EVICTION_GRACE, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) {
+			// Shutting down anyway.
+			closer.accept(client);
+		}
+	}
+}
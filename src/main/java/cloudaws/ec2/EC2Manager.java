@@ -1,8 +1,18 @@
 package cloudaws.ec2;
 
-import cloudaws.concurrent.Promise;
+import cloudaws.Main;
+import cloudaws.concurrent.Binding;
+import cloudaws.concurrent.FutureUtils;
+import cloudaws.metrics.Metrics;
+import cloudaws.metrics.Operation;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.profile.ProfileCredentialsProvider;
+import com.amazonaws.auth.profile.internal.AwsProfileNameLoader;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.ec2.AmazonEC2Async;
 import com.amazonaws.services.ec2.AmazonEC2AsyncClientBuilder;
 import com.amazonaws.services.ec2.model.*;
@@ -10,146 +20,587 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class EC2Manager {
 
-	public static EC2Manager INSTANCE = new EC2Manager();
+	public static final EC2Manager INSTANCE = new EC2Manager();
 	private static final Log logger = LogFactory.getLog(EC2Manager.class);
+	// Throttling is per account, so the buckets outlive region changes.
+	private static final RateLimiter LIMITER = new RateLimiter(Main.SCHEDULER);
+	// Keyed by region, so it survives region changes as well.
+	private static final InstanceCache CACHE = new InstanceCache(InstanceCache.DEFAULT_TTL);
+	private static final ReferenceCache REFERENCE = new ReferenceCache(ReferenceCache.DEFAULT_DIR, ReferenceCache.DEFAULT_REFRESH);
+	static {
+		Metrics.gauge("ec2.cache.size", CACHE::size);
+		Metrics.gauge("ec2.cache.hits", CACHE::hits);
+		Metrics.gauge("ec2.cache.misses", CACHE::misses);
+		Metrics.gauge("ec2.cache.polls", CACHE::polls);
+		for (RateLimiter.Category category : RateLimiter.Category.values()) {
+			String prefix = "ec2.limiter." + category.name().toLowerCase();
+			Metrics.gauge(prefix + ".queued", () -> LIMITER.stats(category).getQueueDepth());
+			// Over the requests that had to queue, since startup.
+			Metrics.gauge(prefix + ".wait.avg.ms", () -> Math.round(LIMITER.stats(category).getAvgWaitMillis()));
+			Metrics.gauge(prefix + ".wait.max.ms", () -> Math.round(LIMITER.stats(category).getMaxWaitMillis()));
+		}
+	}
 
-	private String currentRegion = Regions.US_EAST_2.getName();
+	private static final String DEFAULT_REGION = Regions.US_EAST_2.getName();
+	// Per filter, as documented for the Describe* calls.
+	private static final int MAX_FILTER_VALUES = 200;
+	private static final int NAME_ATTEMPTS = 5;
 
-	private AmazonEC2AsyncClientBuilder builder;
-	public AmazonEC2Async client;
+	// Shared by every regional client, so credentials are resolved once.
+	private final AWSCredentialsProvider credentials;
+	// Reference data differs per account, so the on-disk cache is keyed by profile.
+	private final String profile;
+	private ClientPool<Regional> clients;
+	// Swapped atomically on a region change; every call reads it once, so region and client always match.
+	private volatile Regional current;
 
 	private EC2Manager() {
-		this(null,null);
+		this(null);
 	}
 
-	private EC2Manager(String profile, Regions region) {
-		builder = AmazonEC2AsyncClientBuilder.standard()
-				.withCredentials(new ProfileCredentialsProvider(profile));
-		if (region != null) {
-			builder = builder.withRegion(region);
-			this.currentRegion = region.getName();
-		}
+	private EC2Manager(String profile) {
+		credentials = new ProfileCredentialsProvider(profile);
+		// Resolved like ProfileCredentialsProvider does (aws.profile, then AWS_PROFILE, blanks ignored), so the
+		// cache key always names the profile the credentials came from.
+		this.profile = profile != null ? profile : AwsProfileNameLoader.INSTANCE.loadProfileName();
 	}
 
 	public void init() {
-		client = builder.build();
+		clients = new ClientPool<>(this::connect, Regional::shutdown, ClientPool.DEFAULT_CAPACITY, Main.SCHEDULER);
+		Metrics.gauge("ec2.clients.warm", clients::size);
+		current = clients.pin(DEFAULT_REGION);
 	}
 
 	public boolean isInitialized() {
-		return client != null;
+		return current != null;
 	}
 
-	private void assertInit() {
-		if (!isInitialized()) {
+	private Regional regional() {
+		Regional regional = current;
+		if (regional == null) {
 			String msg = "EC2Manager was failed to initialize.";
 
 			logger.fatal(msg);
 			throw new RuntimeException("[FATAL] " + msg);
 		}
+		return regional;
+	}
+
+	private Regional regional(String region) {
+		regional();
+		return clients.get(region);
+	}
+
+	// Always pinned to an explicit region, so the pool key and the endpoint cannot disagree.
+	private Regional connect(String region) {
+		return new Regional(region, AmazonEC2AsyncClientBuilder.standard()
+				.withCredentials(credentials)
+				.withRegion(region)
+				.build());
+	}
+
+	/**
+	 * A region with its client, lifecycle batcher and waiter; pending batches and watches stay with the
+	 * region they were issued in.
+	 */
+	private final class Regional {
+		final String region;
+		final AmazonEC2Async client;
+		final LifecycleBatcher batcher;
+		final InstanceWaiter waiter;
+
+		Regional(String region, AmazonEC2Async client) {
+			this.region = region;
+			this.client = client;
+			this.batcher = new LifecycleBatcher((action, ids) -> executeLifecycle(this, action, ids));
+			this.waiter = new InstanceWaiter(ids -> watchInstances(this, ids));
+		}
+
+		void shutdown() {
+			client.shutdown();
+		}
+	}
+
+	@FunctionalInterface
+	private interface AsyncCall<REQ extends AmazonWebServiceRequest, RES> {
+		Future<RES> call(REQ request, AsyncHandler<REQ, RES> handler);
+	}
+
+	// Read once per public call, on the caller's thread, and passed down from there: pages, retries and
+	// follow-up describes run on completion threads, where a binding's refresh is no longer visible.
+	private static RateLimiter.Priority priority() {
+		return Binding.isPolling() ? RateLimiter.Priority.BACKGROUND : RateLimiter.Priority.INTERACTIVE;
+	}
+
+	// The SDK pushes the result into the promise, so nothing polls while a request is in flight.
+	// `type` only pins RES, which javac cannot infer from an overloaded method reference.
+	private static <REQ extends AmazonWebServiceRequest, RES> CompletableFuture<RES> request(RateLimiter.Category category, RateLimiter.Priority priority, REQ req, Class<RES> type, AsyncCall<REQ, RES> call) {
+		AsyncPromise<REQ, RES> promise = new AsyncPromise<>();
+		Operation op = Metrics.operation("ec2." + req.getClass().getSimpleName().replace("Request", ""));
+
+		// Until the permit is granted, cancelling or timing out the promise gives up the queue slot.
+		CompletableFuture<Void> permit = LIMITER.acquire(category, priority);
+		promise.bind(permit);
+		permit.thenRun(() -> {
+			if (!promise.isDone()) {
+				// Latency is measured from the permit on; queueing shows up in the limiter's stats.
+				op.track(promise);
+				promise.bind(call.call(req, promise));
+			}
+		});
+		return promise;
+	}
+
+	// Like request(), but the deadline starts once the permit is granted. For calls issued in bulk, e.g. one
+	// per launched instance, whose wait behind each other in the limiter can outlast a call's own timeout.
+	private static <REQ extends AmazonWebServiceRequest, RES> CompletableFuture<RES> requestAfterPermit(RateLimiter.Category category, RateLimiter.Priority priority, REQ req, Class<RES> type, AsyncCall<REQ, RES> call) {
+		Operation op = Metrics.operation("ec2." + req.getClass().getSimpleName().replace("Request", ""));
+		CompletableFuture<Void> permit = LIMITER.acquire(category, priority);
+		CompletableFuture<RES> result = permit.thenCompose(ignored -> {
+			AsyncPromise<REQ, RES> promise = new AsyncPromise<>();
+			op.track(promise);
+			promise.bind(call.call(req, promise));
+			return promise;
+		});
+		// Cancelling while queued still gives up the queue slot.
+		result.whenComplete((res, error) -> {
+			if (result.isCancelled()) permit.cancel(false);
+		});
+		return result;
+	}
+
+	private <REQ extends AmazonWebServiceRequest, RES, T> Paginator<REQ, RES, T> paginate(RateLimiter.Priority priority, BiFunction<String, Integer, REQ> page, Class<RES> type, AsyncCall<REQ, RES> call, Function<RES, ? extends Collection<T>> items, Function<RES, String> nextToken) {
+		return new Paginator<>(priority, page, (req, p) -> request(RateLimiter.Category.DESCRIBE, p, req, type, call), items, nextToken);
 	}
 
 	// Instance management
-	public CompletableFuture<Instance> createInstance(RunInstancesRequest req) {
-		assertInit();
-		return new Promise<>(client.runInstancesAsync(req)).thenApply(result -> result.getReservation().getInstances().get(0));
+	public CompletableFuture<InstanceSnapshot> createInstance(RunInstancesRequest req) {
+		Regional ctx = regional();
+		return request(RateLimiter.Category.RUN_INSTANCES, priority(), req, RunInstancesResult.class, ctx.client::runInstancesAsync).thenApply(result -> {
+			InstanceSnapshot instance = InstanceSnapshot.of(result.getReservation().getInstances().get(0), ctx.region);
+			CACHE.put(ctx.region, instance);
+			return instance;
+		});
+	}
+
+	/**
+	 * Launches {@code count} instances like {@code template}, spread over {@code zones} and falling back to
+	 * the other zones on capacity errors. Each instance is named {@code String.format(nameTemplate, n)},
+	 * n counting from 1, e.g. {@code worker-%03d}.
+	 *
+	 * @return one future per instance, completed once it is launched and named
+	 */
+	public List<CompletableFuture<InstanceSnapshot>> createInstances(RunInstancesRequest template, int count, List<String> zones, String nameTemplate) {
+		Regional ctx = regional();
+		RateLimiter.Priority priority = priority();
+		return BulkLaunch.run(count, zones,
+				(zone, n) -> launch(ctx, priority, template, zone, n),
+				(instance, index) -> nameInstance(ctx, priority, instance, String.format(nameTemplate, index + 1), 1)
+		);
+	}
+
+	private CompletableFuture<List<InstanceSnapshot>> launch(Regional ctx, RateLimiter.Priority priority, RunInstancesRequest template, String zone, int count) {
+		Placement placement = template.getPlacement() != null ? template.getPlacement().clone().withAvailabilityZone(zone) : new Placement(zone);
+		RunInstancesRequest req = template.clone()
+				.withPlacement(placement)
+				.withMinCount(1)
+				.withMaxCount(count)
+				// A retried call with the same token cannot launch a second batch.
+				.withClientToken(UUID.randomUUID().toString());
+
+		return request(RateLimiter.Category.RUN_INSTANCES, priority, req, RunInstancesResult.class, ctx.client::runInstancesAsync).thenApply(result -> {
+			List<InstanceSnapshot> list = new ArrayList<>();
+			result.getReservation().getInstances().forEach(instance -> list.add(InstanceSnapshot.of(instance, ctx.region)));
+			CACHE.putAll(ctx.region, list);
+			return list;
+		});
+	}
+
+	// A just-launched ID can be briefly unknown to CreateTags, and a large launch names hundreds of instances
+	// at once, so NotFound, throttling and timeouts are retried a few times.
+	private CompletableFuture<InstanceSnapshot> nameInstance(Regional ctx, RateLimiter.Priority priority, InstanceSnapshot instance, String name, int attempt) {
+		CreateTagsRequest req = new CreateTagsRequest().withResources(instance.getInstanceId()).withTags(new Tag("Name", name));
+		return requestAfterPermit(RateLimiter.Category.MUTATE, priority, req, CreateTagsResult.class, ctx.client::createTagsAsync).handle((result, error) -> {
+			if (error == null) {
+				InstanceSnapshot named = instance.withName(name);
+				CACHE.put(ctx.region, named);
+				return CompletableFuture.completedFuture(named);
+			}
+
+			Throwable cause = FutureUtils.unwrap(error);
+			if (attempt >= NAME_ATTEMPTS || !isRetriable(cause)) {
+				CompletableFuture<InstanceSnapshot> failed = new CompletableFuture<>();
+				failed.completeExceptionally(cause);
+				return failed;
+			}
+
+			CompletableFuture<Void> delay = new CompletableFuture<>();
+			Main.TIMER.schedule(() -> delay.complete(null), attempt * 1000L);
+			return delay.thenCompose(ignored -> nameInstance(ctx, priority, instance, name, attempt + 1));
+		}).thenCompose(future -> future);
+	}
+
+	private static boolean isRetriable(Throwable error) {
+		if (error instanceof TimeoutException) return true;
+		if (!(error instanceof AmazonServiceException)) return false;
+
+		AmazonServiceException ase = (AmazonServiceException) error;
+		return RetryUtils.isThrottlingException(ase) || "InvalidInstanceID.NotFound".equals(ase.getErrorCode());
 	}
 
 	public String getCurrentRegion() {
-		return this.currentRegion;
+		Regional regional = current;
+		return regional != null ? regional.region : DEFAULT_REGION;
 	}
 
+	/**
+	 * Re-targets this manager; the client for {@code region} is reused if it is still warm.
+	 * Bindings keep calling the same instance and pick the new region up on their next refresh.
+	 */
 	public void changeRegion(Regions region) {
-		INSTANCE.terminate();
+		regional();
+		current = clients.pin(region.getName());
+	}
 
-		INSTANCE = new EC2Manager(null, region);
-		INSTANCE.init();
+	public CompletableFuture<List<InstanceSnapshot>> getInstances() {
+		return getInstances(priority());
 	}
 
-	public CompletableFuture<List<Instance>> getInstances() {
-		assertInit();
-		DescribeInstancesRequest req = new DescribeInstancesRequest();
-		return new Promise<>(client.describeInstancesAsync()).thenApply(result -> {
-			List<Instance> list = new ArrayList<>();
-			do {
-				result.getReservations().forEach(rsv -> list.addAll(rsv.getInstances()));
-				req.setNextToken(req.getNextToken());
-			}
-			while (req.getNextToken() != null);
+	private CompletableFuture<List<InstanceSnapshot>> getInstances(RateLimiter.Priority priority) {
+		Regional ctx = regional();
+		return getInstances(ctx, priority)
+				// A listing that finishes after a region change is replaced by one for the new region.
+				.thenCompose(list -> ctx == current ? CompletableFuture.completedFuture(list) : getInstances(priority));
+	}
+
+	public CompletableFuture<List<InstanceSnapshot>> getInstances(String region) {
+		return getInstances(regional(region), priority());
+	}
+
+	private CompletableFuture<List<InstanceSnapshot>> getInstances(Regional ctx, RateLimiter.Priority priority) {
+		return CACHE.list(ctx.region, onPage -> instancePages(ctx, priority).forEachPage(onPage), ids -> describeInstances(ctx, priority, ids), () -> instanceStates(ctx, priority));
+	}
+
+	/**
+	 * Instances matching {@code query}, filtered by EC2 instead of after the download.
+	 * Always goes to AWS; what comes back is written through to the cache.
+	 */
+	public CompletableFuture<List<InstanceSnapshot>> getInstances(InstanceQuery query) {
+		return getInstances(getCurrentRegion(), query);
+	}
 
+	public CompletableFuture<List<InstanceSnapshot>> getInstances(String region, InstanceQuery query) {
+		Regional ctx = regional(region);
+		return instancePages(ctx, query, priority()).collect().thenApply(list -> {
+			CACHE.putAll(ctx.region, list);
 			return list;
 		});
 	}
 
-	public CompletableFuture<Instance> getInstance(String instanceId) {
-		assertInit();
-		DescribeInstancesRequest req = new DescribeInstancesRequest().withInstanceIds(instanceId);
-		return new Promise<>(client.describeInstancesAsync(req)).thenApply(result -> {
-			if (result.getReservations().size() != 0) return null;
-			if (result.getReservations().get(0).getInstances().size() != 0) return null;
+	/**
+	 * Lists instances in every region enabled for the account, a few regions at a time.
+	 * Each region is handed to {@code onRegion} as soon as it responds; a failing region does not fail the rest.
+	 */
+	public CompletableFuture<List<RegionFanOut.Result<List<InstanceSnapshot>>>> getInstancesAllRegions(Consumer<RegionFanOut.Result<List<InstanceSnapshot>>> onRegion) {
+		return acrossRegions((region, priority) -> getInstances(regional(region), priority), onRegion);
+	}
+
+	/**
+	 * Runs a region-specific query against every enabled region. The query is started from completion
+	 * threads, so it is given the priority of this call to send its requests with.
+	 */
+	public <T> CompletableFuture<List<RegionFanOut.Result<T>>> acrossRegions(BiFunction<String, RateLimiter.Priority, CompletableFuture<T>> query, Consumer<RegionFanOut.Result<T>> onRegion) {
+		RateLimiter.Priority priority = priority();
+		return enabledRegions(priority).thenCompose(regions -> {
+			// Keep every region's client warm instead of cycling the LRU on each pass.
+			clients.reserve(regions.size() + 1);
+			return RegionFanOut.run(regions, RegionFanOut.DEFAULT_PARALLELISM, region -> query.apply(region, priority), onRegion);
+		});
+	}
+
+	public CompletableFuture<List<String>> enabledRegions() {
+		return enabledRegions(priority());
+	}
+
+	private CompletableFuture<List<String>> enabledRegions(RateLimiter.Priority priority) {
+		return availableRegions(regional(), priority).thenApply(regions -> regions.stream().map(Region::getRegionName).sorted().collect(Collectors.toList()));
+	}
+
+	/**
+	 * Emits instances page by page as they arrive; completes with the total count.
+	 * Served from the cache while it is fresh.
+	 */
+	public CompletableFuture<Integer> streamInstances(Consumer<List<InstanceSnapshot>> onPage) {
+		Regional ctx = regional();
+		RateLimiter.Priority priority = priority();
+		return CACHE.stream(ctx.region, onPage, page -> instancePages(ctx, priority).forEachPage(page), ids -> describeInstances(ctx, priority, ids), () -> instanceStates(ctx, priority));
+	}
+
+	public Paginator<DescribeInstancesRequest, DescribeInstancesResult, InstanceSnapshot> instancePages() {
+		return instancePages(regional(), priority());
+	}
+
+	// The cached listing: terminated and shutting-down instances are left out by EC2.
+	private Paginator<DescribeInstancesRequest, DescribeInstancesResult, InstanceSnapshot> instancePages(Regional ctx, RateLimiter.Priority priority) {
+		return instancePages(ctx, InstanceQuery.live(), priority);
+	}
+
+	private Paginator<DescribeInstancesRequest, DescribeInstancesResult, InstanceSnapshot> instancePages(Regional ctx, InstanceQuery query, RateLimiter.Priority priority) {
+		List<Filter> filters = query.toFilters();
+		return paginate(priority,
+				(token, size) -> {
+					DescribeInstancesRequest req = new DescribeInstancesRequest().withNextToken(token).withFilters(filters);
+					// MaxResults cannot be combined with instance IDs.
+					return query.hasInstanceIds() ? req.withInstanceIds(query.getInstanceIds()) : req.withMaxResults(size);
+				},
+				DescribeInstancesResult.class, ctx.client::describeInstancesAsync,
+				result -> instancesOf(ctx.region, result), DescribeInstancesResult::getNextToken
+		);
+	}
+
+	// State codes only, for the cache's poll between full listings; same states as the cached listing.
+	private CompletableFuture<Map<String, Integer>> instanceStates(Regional ctx, RateLimiter.Priority priority) {
+		List<Filter> filters = InstanceQuery.live().toFilters();
+		return paginate(priority,
+				(token, size) -> new DescribeInstanceStatusRequest().withIncludeAllInstances(true).withFilters(filters).withNextToken(token).withMaxResults(size),
+				DescribeInstanceStatusResult.class, ctx.client::describeInstanceStatusAsync,
+				DescribeInstanceStatusResult::getInstanceStatuses, DescribeInstanceStatusResult::getNextToken
+		).collect().thenApply(statuses -> {
+			Map<String, Integer> states = new HashMap<>(statuses.size() * 2);
+			for (InstanceStatus status : statuses) states.put(status.getInstanceId(), status.getInstanceState().getCode() & 0xFF);
+			return states;
+		});
+	}
+
+	// Converted per page, so the SDK objects of a page are garbage as soon as it has been read.
+	private static List<InstanceSnapshot> instancesOf(String region, DescribeInstancesResult result) {
+		List<InstanceSnapshot> list = new ArrayList<>();
+		result.getReservations().forEach(rsv -> rsv.getInstances().forEach(instance -> list.add(InstanceSnapshot.of(instance, region))));
+		return list;
+	}
+
+	public CompletableFuture<InstanceSnapshot> getInstance(String instanceId) {
+		Regional ctx = regional();
+		RateLimiter.Priority priority = priority();
+		return CACHE.get(ctx.region, instanceId, ids -> describeInstances(ctx, priority, ids));
+	}
+
+	// Bypasses the cache; MaxResults cannot be combined with instance IDs, and the ID list is short anyway.
+	private CompletableFuture<List<InstanceSnapshot>> describeInstances(Regional ctx, RateLimiter.Priority priority, Collection<String> instanceIds) {
+		DescribeInstancesRequest req = new DescribeInstancesRequest().withInstanceIds(instanceIds);
+		return request(RateLimiter.Category.DESCRIBE, priority, req, DescribeInstancesResult.class, ctx.client::describeInstancesAsync).thenApply(result -> instancesOf(ctx.region, result));
+	}
+
+	/**
+	 * Completes once the instance has reached {@code state} (see the {@link InstanceSnapshot} constants),
+	 * e.g. after {@link #createInstance} or a lifecycle call.
+	 */
+	public CompletableFuture<InstanceSnapshot> awaitState(String region, String instanceId, int state) {
+		return regional(region).waiter.await(instanceId, state);
+	}
+
+	public CompletableFuture<List<InstanceSnapshot>> awaitState(String region, Collection<String> instanceIds, int state) {
+		return regional(region).waiter.awaitAll(instanceIds, state);
+	}
+
+	/**
+	 * Completes once the instance is running and accepts connections on the SSH port.
+	 */
+	public CompletableFuture<InstanceSnapshot> awaitSshReady(String region, String instanceId) {
+		return regional(region).waiter.await(instanceId, InstanceSnapshot.RUNNING, InstanceWaiter::sshReachable);
+	}
+
+	// An instance-id filter instead of InstanceIds: an ID RunInstances has just returned may not be
+	// visible yet, and with InstanceIds that fails the whole call. Interactive: someone is waiting on every watch.
+	private CompletableFuture<List<InstanceSnapshot>> watchInstances(Regional ctx, Collection<String> instanceIds) {
+		List<String> ids = new ArrayList<>(instanceIds);
+		List<CompletableFuture<List<InstanceSnapshot>>> chunks = new ArrayList<>();
+		for (int from = 0; from < ids.size(); from += MAX_FILTER_VALUES) {
+			List<Filter> filters = Collections.singletonList(new Filter("instance-id", ids.subList(from, Math.min(ids.size(), from + MAX_FILTER_VALUES))));
+			chunks.add(paginate(RateLimiter.Priority.INTERACTIVE,
+					(token, size) -> new DescribeInstancesRequest().withFilters(filters).withNextToken(token).withMaxResults(size),
+					DescribeInstancesResult.class, ctx.client::describeInstancesAsync,
+					result -> instancesOf(ctx.region, result), DescribeInstancesResult::getNextToken
+			).collect());
+		}
 
-			return result.getReservations().get(0).getInstances().get(0);
+		return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			List<InstanceSnapshot> list = new ArrayList<>();
+			chunks.forEach(chunk -> list.addAll(chunk.join()));
+			CACHE.putAll(ctx.region, list);
+			return list;
 		});
 	}
 
-	public void startInstance(String instanceId) {
-		assertInit();
-		StartInstancesRequest req = new StartInstancesRequest().withInstanceIds(instanceId);
-		client.startInstancesAsync(req);
+	// Lifecycle calls issued close together go out as one request per action.
+	public CompletableFuture<LifecycleResult> startInstance(String instanceId) {
+		return regional().batcher.submit(LifecycleBatcher.Action.START, instanceId);
+	}
+
+	public CompletableFuture<LifecycleResult> stopInstance(String instanceId) {
+		return regional().batcher.submit(LifecycleBatcher.Action.STOP, instanceId);
+	}
+
+	public CompletableFuture<LifecycleResult> rebootInstance(String instanceId) {
+		return regional().batcher.submit(LifecycleBatcher.Action.REBOOT, instanceId);
+	}
+
+	public CompletableFuture<List<LifecycleResult>> lifecycle(LifecycleBatcher.Action action, Collection<String> instanceIds) {
+		return regional().batcher.submitAll(action, instanceIds);
 	}
 
-	public void stopInstance(String instanceId) {
-		assertInit();
-		StopInstancesRequest req = new StopInstancesRequest().withInstanceIds(instanceId);
-		client.stopInstancesAsync(req);
+	public CompletableFuture<List<LifecycleResult>> lifecycle(String region, LifecycleBatcher.Action action, Collection<String> instanceIds) {
+		return regional(region).batcher.submitAll(action, instanceIds);
 	}
 
-	public void rebootInstance(String instanceId) {
-		assertInit();
-		RebootInstancesRequest req = new RebootInstancesRequest().withInstanceIds(instanceId);
-		client.rebootInstancesAsync(req);
+	// Marked stale both right away and once AWS has answered, so a read racing the call cannot keep the old state.
+	// Batches are flushed from the timer, but every lifecycle call is a user action.
+	private CompletableFuture<List<LifecycleResult>> executeLifecycle(Regional ctx, LifecycleBatcher.Action action, List<String> instanceIds) {
+		String region = ctx.region;
+		CACHE.invalidate(region, instanceIds);
+
+		CompletableFuture<List<LifecycleResult>> call;
+		switch (action) {
+			case START:
+				call = request(RateLimiter.Category.MUTATE, RateLimiter.Priority.INTERACTIVE, new StartInstancesRequest().withInstanceIds(instanceIds), StartInstancesResult.class, ctx.client::startInstancesAsync)
+						.thenApply(result -> LifecycleResult.of(action, result.getStartingInstances()));
+				break;
+			case STOP:
+				call = request(RateLimiter.Category.MUTATE, RateLimiter.Priority.INTERACTIVE, new StopInstancesRequest().withInstanceIds(instanceIds), StopInstancesResult.class, ctx.client::stopInstancesAsync)
+						.thenApply(result -> LifecycleResult.of(action, result.getStoppingInstances()));
+				break;
+			default:
+				call = request(RateLimiter.Category.MUTATE, RateLimiter.Priority.INTERACTIVE, new RebootInstancesRequest().withInstanceIds(instanceIds), RebootInstancesResult.class, ctx.client::rebootInstancesAsync)
+						.thenApply(result -> Collections.<LifecycleResult>emptyList());
+		}
+		call.whenComplete((result, error) -> CACHE.invalidate(region, instanceIds));
+		return call;
 	}
 
 	// Zones & Regions
 	public CompletableFuture<List<AvailabilityZone>> avaliableZones() {
-		assertInit();
-		return new Promise<>(client.describeAvailabilityZonesAsync()).thenApply(DescribeAvailabilityZonesResult::getAvailabilityZones);
+		return avaliableZones(getCurrentRegion());
+	}
+
+	public CompletableFuture<List<AvailabilityZone>> avaliableZones(String region) {
+		return avaliableZones(regional(region), priority());
+	}
+
+	private CompletableFuture<List<AvailabilityZone>> avaliableZones(Regional ctx, RateLimiter.Priority priority) {
+		return request(RateLimiter.Category.DESCRIBE, priority, new DescribeAvailabilityZonesRequest(), DescribeAvailabilityZonesResult.class, ctx.client::describeAvailabilityZonesAsync).thenApply(DescribeAvailabilityZonesResult::getAvailabilityZones);
 	}
 
 	public CompletableFuture<List<Region>> availableRegions() {
-		assertInit();
-		return new Promise<>(client.describeRegionsAsync()).thenApply(DescribeRegionsResult::getRegions);
+		return availableRegions(regional(), priority());
+	}
+
+	private CompletableFuture<List<Region>> availableRegions(Regional ctx, RateLimiter.Priority priority) {
+		return request(RateLimiter.Category.DESCRIBE, priority, new DescribeRegionsRequest(), DescribeRegionsResult.class, ctx.client::describeRegionsAsync).thenApply(DescribeRegionsResult::getRegions);
+	}
+
+	// Reference data from the on-disk cache; `onChange` hears about a background refresh that found
+	// different data. The fetch may start after the file read, on an I/O thread.
+	public CompletableFuture<List<Image>> cachedImages(Consumer<List<Image>> onChange) {
+		String region = getCurrentRegion();
+		RateLimiter.Priority priority = priority();
+		return REFERENCE.get(referenceKey(region, "images"), ReferenceCache.IMAGES, () -> getImages(regional(region), priority), onChange);
+	}
+
+	public CompletableFuture<List<AvailabilityZone>> cachedZones(Consumer<List<AvailabilityZone>> onChange) {
+		String region = getCurrentRegion();
+		RateLimiter.Priority priority = priority();
+		return REFERENCE.get(referenceKey(region, "zones"), ReferenceCache.ZONES, () -> avaliableZones(regional(region), priority), onChange);
+	}
+
+	public CompletableFuture<List<KeyPairInfo>> cachedKeyPairs(Consumer<List<KeyPairInfo>> onChange) {
+		String region = getCurrentRegion();
+		RateLimiter.Priority priority = priority();
+		return REFERENCE.get(referenceKey(region, "keypairs"), ReferenceCache.KEY_PAIRS, () -> getKeyPairs(regional(region), priority), onChange);
+	}
+
+	public CompletableFuture<List<SecurityGroup>> cachedSecurityGroups(Consumer<List<SecurityGroup>> onChange) {
+		String region = getCurrentRegion();
+		RateLimiter.Priority priority = priority();
+		return REFERENCE.get(referenceKey(region, "securitygroups"), ReferenceCache.SECURITY_GROUPS, () -> getSecurityGroups(regional(region), priority), onChange);
+	}
+
+	public CompletableFuture<List<Region>> cachedRegions(Consumer<List<Region>> onChange) {
+		RateLimiter.Priority priority = priority();
+		return REFERENCE.get(profile + "/regions", ReferenceCache.REGIONS, () -> availableRegions(regional(), priority), onChange);
+	}
+
+	private String referenceKey(String region, String kind) {
+		return profile + "/" + region + "/" + kind;
 	}
 
 	// Image management
+	// DescribeImages and DescribeKeyPairs return everything in one response; they still go through
+	// the paginator so the item cap applies to them too.
 	public CompletableFuture<List<Image>> getImages() {
-		assertInit();
+		return getImages(getCurrentRegion());
+	}
+
+	public CompletableFuture<List<Image>> getImages(String region) {
+		return getImages(regional(region), priority());
+	}
+
+	private CompletableFuture<List<Image>> getImages(Regional ctx, RateLimiter.Priority priority) {
 		DescribeImagesRequest req = new DescribeImagesRequest();
 		req.withFilters(
 				new Filter().withName("is-public").withValues("false")
 		);
 
-		return new Promise<>(client.describeImagesAsync(req)).thenApply(DescribeImagesResult::getImages);
+		return paginate(priority, (token, size) -> req, DescribeImagesResult.class, ctx.client::describeImagesAsync, DescribeImagesResult::getImages, result -> null).collect();
 	}
 
 	// Keys & Security
 	public CompletableFuture<List<KeyPairInfo>> getKeyPairs() {
-		assertInit();
-		return new Promise<>(client.describeKeyPairsAsync()).thenApply(DescribeKeyPairsResult::getKeyPairs);
+		return getKeyPairs(getCurrentRegion());
+	}
+
+	public CompletableFuture<List<KeyPairInfo>> getKeyPairs(String region) {
+		return getKeyPairs(regional(region), priority());
+	}
+
+	private CompletableFuture<List<KeyPairInfo>> getKeyPairs(Regional ctx, RateLimiter.Priority priority) {
+		return paginate(priority, (token, size) -> new DescribeKeyPairsRequest(), DescribeKeyPairsResult.class, ctx.client::describeKeyPairsAsync, DescribeKeyPairsResult::getKeyPairs, result -> null).collect();
 	}
 
 	public CompletableFuture<List<SecurityGroup>> getSecurityGroups() {
-		assertInit();
-		return new Promise<>(client.describeSecurityGroupsAsync()).thenApply(DescribeSecurityGroupsResult::getSecurityGroups);
+		return getSecurityGroups(getCurrentRegion());
+	}
+
+	public CompletableFuture<List<SecurityGroup>> getSecurityGroups(String region) {
+		return getSecurityGroups(regional(region), priority());
+	}
+
+	private CompletableFuture<List<SecurityGroup>> getSecurityGroups(Regional ctx, RateLimiter.Priority priority) {
+		return paginate(priority,
+				(token, size) -> new DescribeSecurityGroupsRequest().withNextToken(token).withMaxResults(size),
+				DescribeSecurityGroupsResult.class, ctx.client::describeSecurityGroupsAsync,
+				DescribeSecurityGroupsResult::getSecurityGroups, DescribeSecurityGroupsResult::getNextToken
+		).collect();
 	}
 
 	public void terminate() {
-		client.shutdown();
-		client = null;
+		current = null;
+		if (clients != null) clients.shutdown();
 	}
 
 }
@@ -3,9 +3,21 @@ package cloudaws.ec2;
 import com.amazonaws.services.ec2.model.Instance;
 import com.amazonaws.services.ec2.model.Tag;
 
+import java.util.Comparator;
 import java.util.Optional;
 
 public class EC2Utils {
+	// Named instances first, alphabetically; unnamed ones after them, by (empty) name.
+	public static final Comparator<InstanceSnapshot> BY_NAME = (i1, i2) -> {
+		String n1 = i1.getName(), n2 = i2.getName();
+		if (n1.equals("") == n2.equals("")) {
+			return n1.compareTo(n2);
+		}
+		else {
+			return n2.length() - n1.length();
+		}
+	};
+
 	public static String getInstanceName(Instance instance) {
 		Optional<Tag> nameTag = instance.getTags().stream().filter(tag -> tag.getKey().equals("Name")).findFirst();
 		return nameTag.isPresent() ? nameTag.get().getValue() : "";
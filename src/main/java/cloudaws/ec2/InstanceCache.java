@@ -0,0 +1,363 @@
+package cloudaws.ec2;
+
+import cloudaws.concurrent.Binding;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Instances already fetched, per region, shared by every view.
+ * A full listing is reused for {@code ttl} ms and concurrent readers share one in-flight request.
+ * Mutations mark instances stale, so the next read fetches only those IDs again.
+ * Once the TTL is up, a state-only poll decides which IDs need a full describe; a complete relist
+ * happens only every {@code fullRefresh} ms, to pick up changes the poll cannot see (tags, addresses).
+ */
+public class InstanceCache {
+	// No longer than the views' poll period, so outside changes show up as fast as they did uncached.
+	public static final long DEFAULT_TTL = Long.getLong("cloudaws.ec2.cache.ttl", Binding.DEFAULT_RELOAD_DELAY);
+	public static final long DEFAULT_FULL_REFRESH = Long.getLong("cloudaws.ec2.cache.fullRefresh", 60000);
+
+	private final long ttlNanos;
+	private final long fullRefreshNanos;
+	private final Map<String, RegionCache> regions = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong polls = new AtomicLong();
+
+	public InstanceCache(long ttl) {
+		this(ttl, DEFAULT_FULL_REFRESH);
+	}
+
+	public InstanceCache(long ttl, long fullRefresh) {
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+		this.fullRefreshNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, fullRefresh));
+	}
+
+	/**
+	 * Emits the instances of a region page by page.
+	 * Served from memory while the last listing is fresh; otherwise pages from {@code source} are
+	 * passed through and cached as they arrive.
+	 *
+	 * @param source streams a full listing into the consumer it is given
+	 * @param byIds fetches the given instance IDs
+	 * @param status state code per instance ID, for the cheap poll; {@code null} to always relist
+	 */
+	public CompletableFuture<Integer> stream(
+			String region,
+			Consumer<List<InstanceSnapshot>> onPage,
+			Function<Consumer<List<InstanceSnapshot>>, CompletableFuture<Integer>> source,
+			Function<Collection<String>, CompletableFuture<List<InstanceSnapshot>>> byIds,
+			Supplier<CompletableFuture<Map<String, Integer>>> status
+	) {
+		RegionCache cache = region(region);
+		CompletableFuture<List<InstanceSnapshot>> shared;
+		List<String> stale;
+		CompletableFuture<List<InstanceSnapshot>> listing;
+		boolean poll;
+		long started;
+
+		synchronized (cache) {
+			shared = cache.listing;
+			stale = cache.isListed(ttlNanos) ? cache.staleIds() : null;
+			listing = shared == null && stale == null ? cache.listing = new CompletableFuture<>() : null;
+			poll = listing != null && status != null && cache.isFullyListed(fullRefreshNanos);
+			started = System.nanoTime();
+		}
+
+		if (shared != null) {
+			hits.incrementAndGet();
+			return shared.thenApply(list -> deliver(onPage, list));
+		}
+		if (stale != null) {
+			hits.incrementAndGet();
+			if (stale.isEmpty()) return CompletableFuture.completedFuture(deliver(onPage, cache.snapshot()));
+			return refresh(cache, stale, byIds).thenApply(ignored -> deliver(onPage, cache.snapshot()));
+		}
+
+		if (poll) {
+			polls.incrementAndGet();
+			CompletableFuture<List<InstanceSnapshot>> polled = status.get()
+					.thenCompose(states -> {
+						List<String> changed = cache.changedSince(states);
+						cache.retainOnly(states.keySet(), started);
+						if (changed.isEmpty()) return CompletableFuture.completedFuture(null);
+						return refresh(cache, changed, byIds);
+					})
+					.thenApply(ignored -> cache.snapshot());
+			polled.whenComplete((list, error) -> {
+				cache.finishPoll(listing, error == null, started);
+				if (error != null) listing.completeExceptionally(error);
+				else listing.complete(list);
+			});
+			return polled.thenApply(list -> deliver(onPage, list));
+		}
+
+		misses.incrementAndGet();
+		List<InstanceSnapshot> seen = new ArrayList<>();
+		CompletableFuture<Integer> pages = source.apply(page -> {
+			cache.merge(page, started);
+			seen.addAll(page);
+			onPage.accept(page);
+		});
+		pages.whenComplete((total, error) -> {
+			cache.finishListing(listing, error == null ? seen : null, started);
+			if (error != null) listing.completeExceptionally(error);
+			else listing.complete(Collections.unmodifiableList(seen));
+		});
+		// The caller's own future: cancelling it must not abort the load other callers share.
+		return pages.thenApply(total -> total);
+	}
+
+	public CompletableFuture<List<InstanceSnapshot>> list(
+			String region,
+			Function<Consumer<List<InstanceSnapshot>>, CompletableFuture<Integer>> source,
+			Function<Collection<String>, CompletableFuture<List<InstanceSnapshot>>> byIds,
+			Supplier<CompletableFuture<Map<String, Integer>>> status
+	) {
+		List<InstanceSnapshot> all = new ArrayList<>();
+		return stream(region, all::addAll, source, byIds, status).thenApply(total -> all);
+	}
+
+	/**
+	 * Completes with {@code null} if the instance does not exist (anymore).
+	 */
+	public CompletableFuture<InstanceSnapshot> get(String region, String instanceId, Function<Collection<String>, CompletableFuture<List<InstanceSnapshot>>> byIds) {
+		RegionCache cache = region(region);
+		InstanceSnapshot cached = cache.fresh(instanceId, ttlNanos);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return CompletableFuture.completedFuture(cached);
+		}
+
+		misses.incrementAndGet();
+		return refresh(cache, Collections.singletonList(instanceId), byIds).thenApply(ignored -> cache.instance(instanceId));
+	}
+
+	/**
+	 * Write-through for instances the caller already has, e.g. the result of RunInstances.
+	 */
+	public void put(String region, InstanceSnapshot instance) {
+		putAll(region, Collections.singletonList(instance));
+	}
+
+	public void putAll(String region, List<InstanceSnapshot> instances) {
+		region(region).merge(instances, System.nanoTime());
+	}
+
+	public void invalidate(String region, Collection<String> instanceIds) {
+		region(region).markStale(instanceIds);
+	}
+
+	public void invalidateAll(String region) {
+		region(region).expire();
+	}
+
+	public long size() {
+		long size = 0;
+		for (RegionCache cache : regions.values()) size += cache.size();
+		return size;
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long polls() {
+		return polls.get();
+	}
+
+	private RegionCache region(String region) {
+		return regions.computeIfAbsent(region, key -> new RegionCache());
+	}
+
+	private static int deliver(Consumer<List<InstanceSnapshot>> onPage, List<InstanceSnapshot> list) {
+		onPage.accept(list);
+		return list.size();
+	}
+
+	// Single-flight per ID: only IDs nobody is fetching yet go out in a new request.
+	private CompletableFuture<Void> refresh(RegionCache cache, Collection<String> ids, Function<Collection<String>, CompletableFuture<List<InstanceSnapshot>>> byIds) {
+		List<CompletableFuture<InstanceSnapshot>> waits = new ArrayList<>();
+		Map<String, CompletableFuture<InstanceSnapshot>> mine = new HashMap<>();
+
+		synchronized (cache) {
+			for (String id : ids) {
+				CompletableFuture<InstanceSnapshot> loading = cache.loading.get(id);
+				if (loading == null) {
+					loading = new CompletableFuture<>();
+					cache.loading.put(id, loading);
+					mine.put(id, loading);
+				}
+				waits.add(loading);
+			}
+		}
+
+		if (!mine.isEmpty()) {
+			long started = System.nanoTime();
+			byIds.apply(mine.keySet()).whenComplete((found, error) -> {
+				if (error == null) cache.replace(mine.keySet(), found, started);
+				cache.finishLoading(mine.keySet());
+
+				for (Map.Entry<String, CompletableFuture<InstanceSnapshot>> entry : mine.entrySet()) {
+					if (error != null) entry.getValue().completeExceptionally(error);
+					else entry.getValue().complete(cache.instance(entry.getKey()));
+				}
+			});
+		}
+		return CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0]));
+	}
+
+	private static final class Entry {
+		final InstanceSnapshot instance;
+		// When the request that produced this entry was sent.
+		final long loadedAt;
+		boolean stale = false;
+		long staleAt;
+
+		Entry(InstanceSnapshot instance, long loadedAt) {
+			this.instance = instance;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	private static final class RegionCache {
+		private final Map<String, Entry> entries = new LinkedHashMap<>();
+		private final Map<String, CompletableFuture<InstanceSnapshot>> loading = new HashMap<>();
+		private CompletableFuture<List<InstanceSnapshot>> listing;
+		private long listedAt = 0;
+		private boolean listed = false;
+		private long fullyListedAt = 0;
+		private boolean fullyListed = false;
+
+		synchronized boolean isListed(long ttlNanos) {
+			return listed && System.nanoTime() - listedAt < ttlNanos;
+		}
+
+		synchronized boolean isFullyListed(long fullRefreshNanos) {
+			return fullyListed && System.nanoTime() - fullyListedAt < fullRefreshNanos;
+		}
+
+		// New IDs, IDs whose state moved, and IDs already marked stale.
+		synchronized List<String> changedSince(Map<String, Integer> states) {
+			List<String> changed = new ArrayList<>();
+			states.forEach((id, code) -> {
+				Entry entry = entries.get(id);
+				if (entry == null || entry.stale || entry.instance.getStateCode() != code) changed.add(id);
+			});
+			return changed;
+		}
+
+		// What the poll no longer reports has been terminated (or left the filtered states).
+		synchronized void retainOnly(Set<String> ids, long started) {
+			entries.entrySet().removeIf(entry -> !ids.contains(entry.getKey()) && entry.getValue().loadedAt < started);
+		}
+
+		synchronized void finishPoll(CompletableFuture<List<InstanceSnapshot>> mine, boolean succeeded, long started) {
+			if (listing == mine) listing = null;
+			if (!succeeded) return;
+
+			listed = true;
+			listedAt = started;
+		}
+
+		synchronized List<String> staleIds() {
+			List<String> ids = new ArrayList<>();
+			entries.forEach((id, entry) -> {
+				if (entry.stale) ids.add(id);
+			});
+			return ids;
+		}
+
+		synchronized List<InstanceSnapshot> snapshot() {
+			List<InstanceSnapshot> list = new ArrayList<>(entries.size());
+			for (Entry entry : entries.values()) list.add(entry.instance);
+			return list;
+		}
+
+		synchronized InstanceSnapshot instance(String id) {
+			Entry entry = entries.get(id);
+			return entry != null ? entry.instance : null;
+		}
+
+		synchronized InstanceSnapshot fresh(String id, long ttlNanos) {
+			Entry entry = entries.get(id);
+			if (entry == null || entry.stale || System.nanoTime() - entry.loadedAt >= ttlNanos) return null;
+			return entry.instance;
+		}
+
+		synchronized void merge(List<InstanceSnapshot> instances, long requestedAt) {
+			for (InstanceSnapshot instance : instances) {
+				Entry previous = entries.get(instance.getInstanceId());
+				if (previous != null && previous.loadedAt > requestedAt) continue;
+
+				Entry entry = new Entry(instance, requestedAt);
+				// A mutation after the request went out still needs a refetch.
+				if (previous != null && previous.stale && previous.staleAt > requestedAt) {
+					entry.stale = true;
+					entry.staleAt = previous.staleAt;
+				}
+				entries.put(instance.getInstanceId(), entry);
+			}
+		}
+
+		// Instances that were asked for but not returned are gone.
+		synchronized void replace(Collection<String> ids, List<InstanceSnapshot> found, long started) {
+			Set<String> missing = new HashSet<>(ids);
+			for (InstanceSnapshot instance : found) missing.remove(instance.getInstanceId());
+			merge(found, started);
+			for (String id : missing) {
+				Entry entry = entries.get(id);
+				if (entry != null && entry.loadedAt <= started) entries.remove(id);
+			}
+		}
+
+		synchronized void finishListing(CompletableFuture<List<InstanceSnapshot>> mine, List<InstanceSnapshot> seen, long started) {
+			if (listing == mine) listing = null;
+			if (seen == null) return;
+
+			Set<String> present = new HashSet<>();
+			for (InstanceSnapshot instance : seen) present.add(instance.getInstanceId());
+			// Keep what was written after the listing started (e.g. a freshly launched instance).
+			entries.entrySet().removeIf(entry -> !present.contains(entry.getKey()) && entry.getValue().loadedAt < started);
+
+			listed = true;
+			listedAt = started;
+			fullyListed = true;
+			fullyListedAt = started;
+		}
+
+		synchronized void finishLoading(Collection<String> ids) {
+			for (String id : ids) loading.remove(id);
+		}
+
+		synchronized void markStale(Collection<String> ids) {
+			for (String id : ids) {
+				Entry entry = entries.get(id);
+				if (entry != null) {
+					entry.stale = true;
+					entry.staleAt = System.nanoTime();
+				}
+			}
+		}
+
+		synchronized void expire() {
+			listed = false;
+			fullyListed = false;
+		}
+
+		synchronized int size() {
+			return entries.size();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package cloudaws.ec2;
+
+import com.amazonaws.services.ec2.model.Filter;
+
+import java.util.*;
+
+/**
+ * Instance filters evaluated by EC2 rather than after downloading everything. Immutable; every
+ * {@code with*} returns a narrowed copy.
+ */
+public final class InstanceQuery {
+	// Everything except terminated and shutting-down instances, which no view shows.
+	private static final List<String> LIVE_STATES = Arrays.asList("pending", "running", "stopping", "stopped");
+
+	private final List<String> states;
+	private final Map<String, List<String>> tags;
+	private final List<String> tagKeys;
+	private final List<String> instanceIds;
+
+	private InstanceQuery(List<String> states, Map<String, List<String>> tags, List<String> tagKeys, List<String> instanceIds) {
+		this.states = Collections.unmodifiableList(states);
+		this.tags = Collections.unmodifiableMap(tags);
+		this.tagKeys = Collections.unmodifiableList(tagKeys);
+		this.instanceIds = Collections.unmodifiableList(instanceIds);
+	}
+
+	public static InstanceQuery all() {
+		return new InstanceQuery(Collections.emptyList(), Collections.emptyMap(), Collections.emptyList(), Collections.emptyList());
+	}
+
+	public static InstanceQuery live() {
+		return all().withStates(LIVE_STATES.toArray(new String[0]));
+	}
+
+	public static InstanceQuery running() {
+		return all().withStates("running");
+	}
+
+	public InstanceQuery withStates(String... names) {
+		return new InstanceQuery(Arrays.asList(names), tags, tagKeys, instanceIds);
+	}
+
+	public InstanceQuery withTag(String key, String... values) {
+		Map<String, List<String>> copy = new LinkedHashMap<>(tags);
+		copy.put(key, Arrays.asList(values));
+		return new InstanceQuery(states, copy, tagKeys, instanceIds);
+	}
+
+	public InstanceQuery withTagKey(String key) {
+		List<String> copy = new ArrayList<>(tagKeys);
+		copy.add(key);
+		return new InstanceQuery(states, tags, copy, instanceIds);
+	}
+
+	public InstanceQuery withInstanceIds(Collection<String> ids) {
+		return new InstanceQuery(states, tags, tagKeys, new ArrayList<>(ids));
+	}
+
+	public List<String> getStates() {
+		return states;
+	}
+
+	public List<String> getInstanceIds() {
+		return instanceIds;
+	}
+
+	public boolean hasInstanceIds() {
+		return !instanceIds.isEmpty();
+	}
+
+	/**
+	 * Filters for DescribeInstances and DescribeInstanceStatus; the state filter has the same name in both.
+	 */
+	List<Filter> toFilters() {
+		List<Filter> filters = new ArrayList<>();
+		if (!states.isEmpty()) filters.add(new Filter("instance-state-name", states));
+		tags.forEach((key, values) -> filters.add(new Filter("tag:" + key, values)));
+		if (!tagKeys.isEmpty()) filters.add(new Filter("tag-key", tagKeys));
+		return filters;
+	}
+
+	@Override
+	public String toString() {
+		return "InstanceQuery{states=" + states + ", tags=" + tags + ", tagKeys=" + tagKeys + ", instanceIds=" + instanceIds + "}";
+	}
+}
@@ -0,0 +1,168 @@
+package cloudaws.ec2;
+
+import com.amazonaws.services.ec2.model.Instance;
+
+import java.util.Objects;
+
+/**
+ * The parts of an EC2 instance the UI and SSH layers actually use, taken once at the {@link EC2Manager}
+ * boundary so the SDK object graph (block devices, network interfaces, tags, ...) can be dropped.
+ * Low-cardinality values are interned, so a whole fleet shares one copy of each type, zone and image.
+ */
+public final class InstanceSnapshot {
+	public static final int PENDING = 0;
+	public static final int RUNNING = 16;
+	public static final int SHUTTING_DOWN = 32;
+	public static final int TERMINATED = 48;
+	public static final int STOPPING = 64;
+	public static final int STOPPED = 80;
+
+	private final String region;
+	private final String instanceId;
+	private final String name;
+	private final int stateCode;
+	private final String stateName;
+	private final String instanceType;
+	private final String availabilityZone;
+	private final String architecture;
+	private final String imageId;
+	private final String publicIpAddress;
+	private final String publicDnsName;
+
+	public InstanceSnapshot(String region, String instanceId, String name, int stateCode, String stateName, String instanceType, String availabilityZone, String architecture, String imageId, String publicIpAddress, String publicDnsName) {
+		this.region = intern(region);
+		this.instanceId = instanceId;
+		this.name = name != null ? name : "";
+		this.stateCode = stateCode;
+		this.stateName = intern(stateName);
+		this.instanceType = intern(instanceType);
+		this.availabilityZone = intern(availabilityZone);
+		this.architecture = intern(architecture);
+		this.imageId = intern(imageId);
+		this.publicIpAddress = emptyToNull(publicIpAddress);
+		this.publicDnsName = emptyToNull(publicDnsName);
+	}
+
+	public static InstanceSnapshot of(Instance instance, String region) {
+		// The low byte is the state; the high byte is internal to AWS.
+		int code = instance.getState() != null && instance.getState().getCode() != null ? instance.getState().getCode() & 0xFF : -1;
+		return new InstanceSnapshot(
+				region,
+				instance.getInstanceId(),
+				EC2Utils.getInstanceName(instance),
+				code,
+				instance.getState() != null ? instance.getState().getName() : null,
+				instance.getInstanceType(),
+				instance.getPlacement() != null ? instance.getPlacement().getAvailabilityZone() : null,
+				instance.getArchitecture(),
+				instance.getImageId(),
+				instance.getPublicIpAddress(),
+				instance.getPublicDnsName()
+		);
+	}
+
+	public String getRegion() {
+		return region;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	/**
+	 * The {@code Name} tag, or an empty string.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * The name if there is one, otherwise the instance ID.
+	 */
+	public String getLabel() {
+		return name.isEmpty() ? instanceId : name;
+	}
+
+	/**
+	 * The same instance after its {@code Name} tag has been set.
+	 */
+	public InstanceSnapshot withName(String name) {
+		return new InstanceSnapshot(region, instanceId, name, stateCode, stateName, instanceType, availabilityZone, architecture, imageId, publicIpAddress, publicDnsName);
+	}
+
+	public int getStateCode() {
+		return stateCode;
+	}
+
+	public String getStateName() {
+		return stateName;
+	}
+
+	public boolean isRunning() {
+		return stateCode == RUNNING;
+	}
+
+	public boolean isGone() {
+		return stateCode == SHUTTING_DOWN || stateCode == TERMINATED;
+	}
+
+	public String getInstanceType() {
+		return instanceType;
+	}
+
+	public String getAvailabilityZone() {
+		return availabilityZone;
+	}
+
+	public String getArchitecture() {
+		return architecture;
+	}
+
+	public String getImageId() {
+		return imageId;
+	}
+
+	public String getPublicIpAddress() {
+		return publicIpAddress;
+	}
+
+	public String getPublicDnsName() {
+		return publicDnsName;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof InstanceSnapshot)) return false;
+
+		InstanceSnapshot that = (InstanceSnapshot) o;
+		return stateCode == that.stateCode &&
+				instanceId.equals(that.instanceId) &&
+				Objects.equals(region, that.region) &&
+				name.equals(that.name) &&
+				Objects.equals(instanceType, that.instanceType) &&
+				Objects.equals(availabilityZone, that.availabilityZone) &&
+				Objects.equals(architecture, that.architecture) &&
+				Objects.equals(imageId, that.imageId) &&
+				Objects.equals(publicIpAddress, that.publicIpAddress) &&
+				Objects.equals(publicDnsName, that.publicDnsName);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(instanceId, stateCode, publicIpAddress);
+	}
+
+	@Override
+	public String toString() {
+		return instanceId + (name.isEmpty() ? "" : " (" + name + ")") + " " + stateName;
+	}
+
+	private static String intern(String value) {
+		return value != null ? value.intern() : null;
+	}
+
+	private static String emptyToNull(String value) {
+		return value == null || value.isEmpty() ? null : value;
+	}
+}
@@ -0,0 +1,243 @@
+package cloudaws.ec2;
+
+import cloudaws.Main;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Waits for instances to reach a state. Every instance watched in a region is checked with one
+ * describe per tick; ticks start at {@code minInterval} ms and back off up to {@code maxInterval}
+ * while nothing changes. A new watch or any state change brings the interval back down.
+ */
+public class InstanceWaiter {
+	public static final long DEFAULT_MIN_INTERVAL = Long.getLong("cloudaws.ec2.waiter.minInterval", 1000);
+	public static final long DEFAULT_MAX_INTERVAL = Long.getLong("cloudaws.ec2.waiter.maxInterval", 15000);
+	public static final long DEFAULT_TIMEOUT = Long.getLong("cloudaws.ec2.waiter.timeout", 600000);
+	private static final int SSH_PORT = 22;
+	private static final int SSH_CONNECT_TIMEOUT = 2000;
+
+	@FunctionalInterface
+	public interface Describer {
+		/**
+		 * Current snapshots of {@code instanceIds}; IDs EC2 does not know (yet) are simply left out.
+		 */
+		CompletableFuture<List<InstanceSnapshot>> describe(Collection<String> instanceIds);
+	}
+
+	private final Describer describer;
+	private final long minInterval;
+	private final long maxInterval;
+	private final long timeout;
+
+	private final Map<String, List<Watch>> watches = new LinkedHashMap<>();
+	private long interval;
+	private boolean scheduled = false;
+	private boolean polling = false;
+
+	public InstanceWaiter(Describer describer) {
+		this(describer, DEFAULT_MIN_INTERVAL, DEFAULT_MAX_INTERVAL, DEFAULT_TIMEOUT);
+	}
+
+	public InstanceWaiter(Describer describer, long minInterval, long maxInterval, long timeout) {
+		this.describer = describer;
+		this.minInterval = Math.max(1, minInterval);
+		this.maxInterval = Math.max(this.minInterval, maxInterval);
+		this.timeout = timeout;
+		this.interval = this.minInterval;
+	}
+
+	public CompletableFuture<InstanceSnapshot> await(String instanceId, int state) {
+		return await(instanceId, state, null);
+	}
+
+	/**
+	 * Completes once the instance is in {@code state} and, if given, {@code ready} has answered true.
+	 * Fails if the instance ends up terminated instead, or with a {@link TimeoutException}.
+	 */
+	public CompletableFuture<InstanceSnapshot> await(String instanceId, int state, Function<InstanceSnapshot, CompletableFuture<Boolean>> ready) {
+		Watch watch = new Watch(instanceId, state, ready, System.currentTimeMillis() + timeout);
+		synchronized (this) {
+			watches.computeIfAbsent(instanceId, key -> new ArrayList<>()).add(watch);
+			interval = minInterval;
+			if (!scheduled && !polling) schedule();
+		}
+		return watch.future;
+	}
+
+	public CompletableFuture<List<InstanceSnapshot>> awaitAll(Collection<String> instanceIds, int state) {
+		List<CompletableFuture<InstanceSnapshot>> futures = new ArrayList<>(instanceIds.size());
+		for (String id : instanceIds) futures.add(await(id, state));
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			List<InstanceSnapshot> results = new ArrayList<>(futures.size());
+			for (CompletableFuture<InstanceSnapshot> future : futures) results.add(future.join());
+			return results;
+		});
+	}
+
+	public synchronized int watching() {
+		int count = 0;
+		for (List<Watch> list : watches.values()) count += list.size();
+		return count;
+	}
+
+	/**
+	 * A ready check that passes once the instance accepts TCP connections on the SSH port.
+	 */
+	public static CompletableFuture<Boolean> sshReachable(InstanceSnapshot instance) {
+		String address = instance.getPublicIpAddress();
+		if (address == null) return CompletableFuture.completedFuture(false);
+
+		return CompletableFuture.supplyAsync(() -> {
+			try (Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress(address, SSH_PORT), SSH_CONNECT_TIMEOUT);
+				return true;
+			} catch (IOException ex) {
+				return false;
+			}
+		}, Main.IO_POOL);
+	}
+
+	// Called with the lock held.
+	private void schedule() {
+		scheduled = true;
+		Main.TIMER.schedule(this::tick, interval);
+	}
+
+	private void tick() {
+		List<String> ids;
+		synchronized (this) {
+			scheduled = false;
+			expire();
+			if (watches.isEmpty()) return;
+
+			polling = true;
+			ids = new ArrayList<>(watches.keySet());
+		}
+
+		CompletableFuture<List<InstanceSnapshot>> call;
+		try {
+			call = describer.describe(ids);
+		} catch (RuntimeException ex) {
+			call = new CompletableFuture<>();
+			call.completeExceptionally(ex);
+		}
+
+		call.whenComplete((found, error) -> {
+			boolean changed = false;
+			if (error != null) System.err.println("Failed to poll instance states: " + error.getMessage());
+			else changed = update(found);
+
+			synchronized (this) {
+				polling = false;
+				interval = changed ? minInterval : Math.min(maxInterval, interval * 3 / 2);
+				if (!watches.isEmpty() && !scheduled) schedule();
+			}
+		});
+	}
+
+	// Returns whether any watched instance moved.
+	private boolean update(List<InstanceSnapshot> found) {
+		boolean changed = false;
+		List<Watch> checks = new ArrayList<>();
+
+		synchronized (this) {
+			for (InstanceSnapshot instance : found) {
+				List<Watch> list = watches.get(instance.getInstanceId());
+				if (list == null) continue;
+
+				for (Iterator<Watch> it = list.iterator(); it.hasNext(); ) {
+					Watch watch = it.next();
+					if (watch.last == null || watch.last.getStateCode() != instance.getStateCode()) changed = true;
+					watch.last = instance;
+
+					if (instance.getStateCode() == watch.state) {
+						if (watch.ready == null) {
+							watch.future.complete(instance);
+							it.remove();
+						}
+						else if (!watch.checking) {
+							watch.checking = true;
+							checks.add(watch);
+						}
+					}
+					else if (instance.isGone() && !isGoneState(watch.state)) {
+						watch.future.completeExceptionally(new IllegalStateException(instance.getInstanceId() + " is " + instance.getStateName()));
+						it.remove();
+					}
+				}
+				if (list.isEmpty()) watches.remove(instance.getInstanceId());
+			}
+		}
+
+		for (Watch watch : checks) check(watch);
+		return changed;
+	}
+
+	private void check(Watch watch) {
+		InstanceSnapshot instance = watch.last;
+		CompletableFuture<Boolean> ready;
+		try {
+			ready = watch.ready.apply(instance);
+		} catch (RuntimeException ex) {
+			ready = CompletableFuture.completedFuture(false);
+		}
+
+		ready.whenComplete((ok, error) -> {
+			synchronized (this) {
+				watch.checking = false;
+				if (error != null || !Boolean.TRUE.equals(ok)) return;
+
+				List<Watch> list = watches.get(watch.instanceId);
+				if (list != null && list.remove(watch) && list.isEmpty()) watches.remove(watch.instanceId);
+			}
+			watch.future.complete(instance);
+		});
+	}
+
+	// Called with the lock held.
+	private void expire() {
+		long now = System.currentTimeMillis();
+		for (Iterator<List<Watch>> lists = watches.values().iterator(); lists.hasNext(); ) {
+			List<Watch> list = lists.next();
+			for (Iterator<Watch> it = list.iterator(); it.hasNext(); ) {
+				Watch watch = it.next();
+				if (watch.future.isDone()) it.remove();
+				else if (now >= watch.deadline) {
+					String last = watch.last != null ? watch.last.getStateName() : "not found";
+					watch.future.completeExceptionally(new TimeoutException(watch.instanceId + " did not reach state " + watch.state + " (last: " + last + ")"));
+					it.remove();
+				}
+			}
+			if (list.isEmpty()) lists.remove();
+		}
+	}
+
+	private static boolean isGoneState(int state) {
+		return state == InstanceSnapshot.SHUTTING_DOWN || state == InstanceSnapshot.TERMINATED;
+	}
+
+	private static final class Watch {
+		final String instanceId;
+		final int state;
+		final Function<InstanceSnapshot, CompletableFuture<Boolean>> ready;
+		final long deadline;
+		final CompletableFuture<InstanceSnapshot> future = new CompletableFuture<>();
+
+		InstanceSnapshot last;
+		boolean checking = false;
+
+		Watch(String instanceId, int state, Function<InstanceSnapshot, CompletableFuture<Boolean>> ready, long deadline) {
+			this.instanceId = instanceId;
+			this.state = state;
+			this.ready = ready;
+			this.deadline = deadline;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package cloudaws.ec2;
+
+import cloudaws.Main;
+import cloudaws.concurrent.FutureUtils;
+import com.amazonaws.AmazonServiceException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coalesces start/stop/reboot requests issued within a short window into one API call per action,
+ * at most {@code maxBatch} IDs each. Every caller gets the result for its own instance; the returned
+ * futures never fail, errors are carried in the {@link LifecycleResult}.
+ */
+public class LifecycleBatcher {
+	public static final long DEFAULT_WINDOW = Long.getLong("cloudaws.ec2.batch.window", 50);
+	public static final int DEFAULT_MAX_BATCH = Integer.getInteger("cloudaws.ec2.batch.max", 1000);
+
+	// One bad ID fails the whole call with one of these; the batch is split until it is isolated.
+	private static final Set<String> PER_INSTANCE_ERRORS = new HashSet<>(Arrays.asList(
+			"InvalidInstanceID.NotFound",
+			"InvalidInstanceID.Malformed",
+			"IncorrectInstanceState",
+			"UnsupportedOperation",
+			"OperationNotPermitted"
+	));
+
+	public enum Action { START, STOP, REBOOT }
+
+	@FunctionalInterface
+	public interface Executor {
+		/**
+		 * Sends one call for all {@code instanceIds}. IDs missing from the result count as successful.
+		 */
+		CompletableFuture<List<LifecycleResult>> execute(Action action, List<String> instanceIds);
+	}
+
+	private final Executor executor;
+	private final long window;
+	private final int maxBatch;
+
+	private final Map<Action, Map<String, CompletableFuture<LifecycleResult>>> pending = new EnumMap<>(Action.class);
+	private final Set<Action> scheduled = EnumSet.noneOf(Action.class);
+
+	public LifecycleBatcher(Executor executor) {
+		this(executor, DEFAULT_WINDOW, DEFAULT_MAX_BATCH);
+	}
+
+	public LifecycleBatcher(Executor executor, long window, int maxBatch) {
+		this.executor = executor;
+		this.window = Math.max(0, window);
+		this.maxBatch = Math.max(1, maxBatch);
+	}
+
+	public CompletableFuture<LifecycleResult> submit(Action action, String instanceId) {
+		Map<String, CompletableFuture<LifecycleResult>> full = null;
+		CompletableFuture<LifecycleResult> future;
+
+		synchronized (this) {
+			Map<String, CompletableFuture<LifecycleResult>> batch = pending.computeIfAbsent(action, key -> new LinkedHashMap<>());
+			// The same ID twice within a window shares one entry.
+			future = batch.get(instanceId);
+			if (future != null) return future;
+
+			future = new CompletableFuture<>();
+			batch.put(instanceId, future);
+
+			if (batch.size() >= maxBatch) full = pending.remove(action);
+			else if (scheduled.add(action)) Main.TIMER.schedule(() -> flush(action), window);
+		}
+
+		if (full != null) send(action, full);
+		return future;
+	}
+
+	public CompletableFuture<List<LifecycleResult>> submitAll(Action action, Collection<String> instanceIds) {
+		List<CompletableFuture<LifecycleResult>> futures = new ArrayList<>(instanceIds.size());
+		for (String id : instanceIds) futures.add(submit(action, id));
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			List<LifecycleResult> results = new ArrayList<>(futures.size());
+			for (CompletableFuture<LifecycleResult> future : futures) results.add(future.join());
+			return results;
+		});
+	}
+
+	private void flush(Action action) {
+		Map<String, CompletableFuture<LifecycleResult>> batch;
+		synchronized (this) {
+			scheduled.remove(action);
+			batch = pending.remove(action);
+		}
+		if (batch != null && !batch.isEmpty()) send(action, batch);
+	}
+
+	private void send(Action action, Map<String, CompletableFuture<LifecycleResult>> batch) {
+		List<String> ids = new ArrayList<>(batch.keySet());
+
+		CompletableFuture<List<LifecycleResult>> call;
+		try {
+			call = executor.execute(action, ids);
+		} catch (RuntimeException ex) {
+			call = new CompletableFuture<>();
+			call.completeExceptionally(ex);
+		}
+
+		call.whenComplete((results, error) -> {
+			if (error == null) {
+				Map<String, LifecycleResult> byId = new HashMap<>();
+				for (LifecycleResult result : results) byId.put(result.getInstanceId(), result);
+				batch.forEach((id, future) -> future.complete(byId.getOrDefault(id, LifecycleResult.ok(id, action))));
+				return;
+			}
+
+			Throwable cause = FutureUtils.unwrap(error);
+			if (ids.size() > 1 && isPerInstance(cause)) {
+				int mid = ids.size() / 2;
+				send(action, slice(batch, ids.subList(0, mid)));
+				send(action, slice(batch, ids.subList(mid, ids.size())));
+			}
+			else {
+				batch.forEach((id, future) -> future.complete(LifecycleResult.failed(id, action, cause)));
+			}
+		});
+	}
+
+	private static Map<String, CompletableFuture<LifecycleResult>> slice(Map<String, CompletableFuture<LifecycleResult>> batch, List<String> ids) {
+		Map<String, CompletableFuture<LifecycleResult>> part = new LinkedHashMap<>();
+		for (String id : ids) part.put(id, batch.get(id));
+		return part;
+	}
+
+	private static boolean isPerInstance(Throwable error) {
+		return error instanceof AmazonServiceException && PER_INSTANCE_ERRORS.contains(((AmazonServiceException) error).getErrorCode());
+	}
+}
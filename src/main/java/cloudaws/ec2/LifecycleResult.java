@@ -0,0 +1,88 @@
+package cloudaws.ec2;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ec2.model.InstanceStateChange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a start, stop or reboot for a single instance.
+ * States are only known for start and stop; a reboot reports none.
+ */
+public final class LifecycleResult {
+	private final String instanceId;
+	private final LifecycleBatcher.Action action;
+	private final String previousState;
+	private final String currentState;
+	private final Throwable error;
+
+	private LifecycleResult(String instanceId, LifecycleBatcher.Action action, String previousState, String currentState, Throwable error) {
+		this.instanceId = instanceId;
+		this.action = action;
+		this.previousState = previousState;
+		this.currentState = currentState;
+		this.error = error;
+	}
+
+	static LifecycleResult ok(String instanceId, LifecycleBatcher.Action action) {
+		return new LifecycleResult(instanceId, action, null, null, null);
+	}
+
+	static LifecycleResult failed(String instanceId, LifecycleBatcher.Action action, Throwable error) {
+		return new LifecycleResult(instanceId, action, null, null, error);
+	}
+
+	static List<LifecycleResult> of(LifecycleBatcher.Action action, List<InstanceStateChange> changes) {
+		List<LifecycleResult> results = new ArrayList<>(changes.size());
+		for (InstanceStateChange change : changes) {
+			results.add(new LifecycleResult(
+					change.getInstanceId(), action,
+					change.getPreviousState() != null ? change.getPreviousState().getName() : null,
+					change.getCurrentState() != null ? change.getCurrentState().getName() : null,
+					null
+			));
+		}
+		return results;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public LifecycleBatcher.Action getAction() {
+		return action;
+	}
+
+	public String getPreviousState() {
+		return previousState;
+	}
+
+	public String getCurrentState() {
+		return currentState;
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * The AWS error message without the request metadata, or {@code null} on success.
+	 */
+	public String getMessage() {
+		if (error == null) return null;
+		if (error instanceof AmazonServiceException) return ((AmazonServiceException) error).getErrorMessage();
+		return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+	}
+
+	@Override
+	public String toString() {
+		if (error != null) return instanceId + " " + action + " failed: " + getMessage();
+		if (currentState == null) return instanceId + " " + action;
+		return instanceId + " " + action + " " + previousState + " -> " + currentState;
+	}
+}
@@ -0,0 +1,139 @@
+package cloudaws.ec2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Follows {@code NextToken} across the pages of a describe* call.
+ * The request for page n+1 is sent before page n is handed to the consumer, so processing overlaps
+ * with the next round-trip, while never more than two pages are held at once.
+ * Results are capped at {@code maxItems} to bound memory on huge accounts.
+ */
+public class Paginator<REQ, RES, T> {
+	private static final Log logger = LogFactory.getLog(Paginator.class);
+
+	public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("cloudaws.ec2.page.size", 1000);
+	public static final int DEFAULT_MAX_ITEMS = Integer.getInteger("cloudaws.ec2.page.maxItems", 100000);
+
+	private final RateLimiter.Priority priority;
+	private final BiFunction<String, Integer, REQ> request;
+	private final BiFunction<REQ, RateLimiter.Priority, CompletableFuture<RES>> call;
+	private final Function<RES, ? extends Collection<T>> items;
+	private final Function<RES, String> nextToken;
+
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	private int maxItems = DEFAULT_MAX_ITEMS;
+
+	/**
+	 * @param priority what every page is sent with; fixed here, since later pages are sent from completion threads
+	 * @param request builds the request for a page from its token ({@code null} for the first page) and the page size
+	 * @param call sends a request with the given priority
+	 * @param items extracts the items of a page
+	 * @param nextToken extracts the token of the following page; {@code null} or empty ends pagination
+	 */
+	public Paginator(
+			RateLimiter.Priority priority,
+			BiFunction<String, Integer, REQ> request,
+			BiFunction<REQ, RateLimiter.Priority, CompletableFuture<RES>> call,
+			Function<RES, ? extends Collection<T>> items,
+			Function<RES, String> nextToken
+	) {
+		this.priority = priority;
+		this.request = request;
+		this.call = call;
+		this.items = items;
+		this.nextToken = nextToken;
+	}
+
+	public Paginator<REQ, RES, T> withPageSize(int pageSize) {
+		this.pageSize = Math.max(5, pageSize);
+		return this;
+	}
+
+	public Paginator<REQ, RES, T> withMaxItems(int maxItems) {
+		this.maxItems = Math.max(1, maxItems);
+		return this;
+	}
+
+	public CompletableFuture<List<T>> collect() {
+		List<T> all = new ArrayList<>();
+		return forEachPage(all::addAll).thenApply(total -> all);
+	}
+
+	/**
+	 * Hands every page to {@code consumer} in order, one at a time.
+	 * Completes with the number of items delivered; cancelling it stops fetching further pages.
+	 */
+	public CompletableFuture<Integer> forEachPage(Consumer<List<T>> consumer) {
+		return new Run(consumer).start();
+	}
+
+	private final class Run {
+		private final Consumer<List<T>> consumer;
+		private final CompletableFuture<Integer> done = new CompletableFuture<>();
+		private volatile CompletableFuture<RES> inFlight;
+
+		Run(Consumer<List<T>> consumer) {
+			this.consumer = consumer;
+		}
+
+		CompletableFuture<Integer> start() {
+			done.whenComplete((total, err) -> {
+				CompletableFuture<RES> page = inFlight;
+				if (done.isCancelled() && page != null) page.cancel(true);
+			});
+			deliver(send(null), 0);
+			return done;
+		}
+
+		private CompletableFuture<RES> send(String token) {
+			CompletableFuture<RES> page = call.apply(request.apply(token, pageSize), priority);
+			inFlight = page;
+			return page;
+		}
+
+		private void deliver(CompletableFuture<RES> page, int seen) {
+			page.whenComplete((res, err) -> {
+				if (done.isDone()) return;
+				if (err != null) {
+					done.completeExceptionally(err);
+					return;
+				}
+
+				Collection<T> received = items.apply(res);
+				List<T> list = received != null ? new ArrayList<>(received) : Collections.emptyList();
+				String token = nextToken.apply(res);
+
+				int total = seen + list.size();
+				boolean more = token != null && !token.isEmpty() && total < maxItems;
+				CompletableFuture<RES> next = more ? send(token) : null;
+
+				if (total > maxItems) {
+					logger.warn("Pagination stopped at " + maxItems + " items; the rest of the result set was dropped.");
+					list = list.subList(0, maxItems - seen);
+					total = maxItems;
+				}
+
+				try {
+					consumer.accept(list);
+				} catch (RuntimeException ex) {
+					if (next != null) next.cancel(true);
+					done.completeExceptionally(ex);
+					return;
+				}
+
+				if (next != null) deliver(next, total);
+				else done.complete(total);
+			});
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package cloudaws.ec2;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side token buckets per EC2 API category, modelled on the account-level throttling EC2 applies.
+ * Permits are handed out asynchronously; when a bucket is empty, interactive callers queue ahead
+ * of background refreshes.
+ */
+public class RateLimiter {
+	private static final String PREFIX = "cloudaws.ec2.rate.";
+
+	public enum Category {
+		DESCRIBE(50, 10),
+		MUTATE(50, 5),
+		RUN_INSTANCES(20, 2);
+
+		private final int burst;
+		private final double rate;
+
+		Category(int burst, double rate) {
+			this.burst = burst;
+			this.rate = rate;
+		}
+	}
+
+	public enum Priority { INTERACTIVE, BACKGROUND }
+
+	private final ScheduledExecutorService scheduler;
+	private final Map<Category, Bucket> buckets = new EnumMap<>(Category.class);
+
+	public RateLimiter(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+		for (Category category : Category.values()) {
+			String key = PREFIX + category.name().toLowerCase();
+			int burst = Integer.getInteger(key + ".burst", category.burst);
+			double rate = Double.parseDouble(System.getProperty(key + ".rate", String.valueOf(category.rate)));
+
+			buckets.put(category, new Bucket(category, Math.max(1, burst), Math.max(0.01, rate)));
+		}
+	}
+
+	/**
+	 * Completes once a token of the given category is available. Cancelling the returned future
+	 * while it is queued gives up its place.
+	 */
+	public CompletableFuture<Void> acquire(Category category, Priority priority) {
+		return buckets.get(category).acquire(priority);
+	}
+
+	public Stats stats(Category category) {
+		return buckets.get(category).stats();
+	}
+
+	public List<Stats> stats() {
+		List<Stats> list = new ArrayList<>();
+		for (Bucket bucket : buckets.values()) list.add(bucket.stats());
+		return list;
+	}
+
+	public static final class Stats {
+		private final Category category;
+		private final int interactiveQueued, backgroundQueued;
+		private final long granted, delayed;
+		private final double avgWaitMillis, maxWaitMillis, tokens;
+
+		Stats(Category category, int interactiveQueued, int backgroundQueued, long granted, long delayed, double avgWaitMillis, double maxWaitMillis, double tokens) {
+			this.category = category;
+			this.interactiveQueued = interactiveQueued;
+			this.backgroundQueued = backgroundQueued;
+			this.granted = granted;
+			this.delayed = delayed;
+			this.avgWaitMillis = avgWaitMillis;
+			this.maxWaitMillis = maxWaitMillis;
+			this.tokens = tokens;
+		}
+
+		public Category getCategory() {
+			return category;
+		}
+
+		public int getQueueDepth() {
+			return interactiveQueued + backgroundQueued;
+		}
+
+		public int getInteractiveQueued() {
+			return interactiveQueued;
+		}
+
+		public int getBackgroundQueued() {
+			return backgroundQueued;
+		}
+
+		public long getGranted() {
+			return granted;
+		}
+
+		public long getDelayed() {
+			return delayed;
+		}
+
+		public double getAvgWaitMillis() {
+			return avgWaitMillis;
+		}
+
+		public double getMaxWaitMillis() {
+			return maxWaitMillis;
+		}
+
+		public double getTokens() {
+			return tokens;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s queued=%d/%d granted=%d delayed=%d wait(avg/max)=%.1f/%.1fms tokens=%.1f",
+					category, interactiveQueued, backgroundQueued, granted, delayed, avgWaitMillis, maxWaitMillis, tokens);
+		}
+	}
+
+	private static final class Waiter {
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+		final long enqueued = System.nanoTime();
+	}
+
+	private final class Bucket {
+		private final Category category;
+		private final double capacity;
+		private final double perNano;
+
+		private double tokens;
+		private long lastRefill = System.nanoTime();
+
+		private final Deque<Waiter> interactive = new ArrayDeque<>();
+		private final Deque<Waiter> background = new ArrayDeque<>();
+		private boolean drainScheduled = false;
+
+		private long granted = 0, delayed = 0;
+		private long waitedNanos = 0, maxWaitNanos = 0;
+
+		Bucket(Category category, int burst, double rate) {
+			this.category = category;
+			this.capacity = burst;
+			this.perNano = rate / TimeUnit.SECONDS.toNanos(1);
+			this.tokens = burst;
+		}
+
+		synchronized CompletableFuture<Void> acquire(Priority priority) {
+			refill();
+			if (interactive.isEmpty() && background.isEmpty() && tokens >= 1) {
+				tokens -= 1;
+				granted++;
+				return CompletableFuture.completedFuture(null);
+			}
+
+			Waiter waiter = new Waiter();
+			(priority == Priority.INTERACTIVE ? interactive : background).add(waiter);
+			scheduleDrain();
+
+			return waiter.future;
+		}
+
+		private void drain() {
+			List<Waiter> ready = new ArrayList<>();
+			synchronized (this) {
+				drainScheduled = false;
+				refill();
+
+				while (tokens >= 1) {
+					Waiter waiter = poll(interactive);
+					if (waiter == null) waiter = poll(background);
+					if (waiter == null) break;
+
+					long waited = System.nanoTime() - waiter.enqueued;
+					tokens -= 1;
+					granted++;
+					delayed++;
+					waitedNanos += waited;
+					maxWaitNanos = Math.max(maxWaitNanos, waited);
+					ready.add(waiter);
+				}
+				if (!interactive.isEmpty() || !background.isEmpty()) scheduleDrain();
+			}
+
+			// Outside the lock: completing runs the caller's continuation.
+			for (Waiter waiter : ready) waiter.future.complete(null);
+		}
+
+		private Waiter poll(Deque<Waiter> queue) {
+			Waiter waiter;
+			while ((waiter = queue.poll()) != null) {
+				if (!waiter.future.isDone()) return waiter;
+			}
+			return null;
+		}
+
+		private void refill() {
+			long now = System.nanoTime();
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * perNano);
+			lastRefill = now;
+		}
+
+		private void scheduleDrain() {
+			if (drainScheduled) return;
+
+			drainScheduled = true;
+			long delay = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / perNano);
+			scheduler.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+		}
+
+		synchronized Stats stats() {
+			refill();
+			return new Stats(
+					category,
+					interactive.size(), background.size(),
+					granted, delayed,
+					delayed > 0 ? waitedNanos / 1e6 / delayed : 0,
+					maxWaitNanos / 1e6,
+					tokens
+			);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package cloudaws.ec2;
+
+import cloudaws.Main;
+import com.amazonaws.services.ec2.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reference data that rarely changes (images, zones, key pairs, security groups, regions), kept on disk
+ * per profile and region so a window can show it without waiting on AWS. A cached list is returned at
+ * once and refreshed in the background; {@code onChange} only hears about it if the data differs.
+ * Only the fields the UI reads are stored, in a small binary format.
+ */
+public class ReferenceCache {
+	public static final String DEFAULT_DIR = System.getProperty("cloudaws.refdata.dir", System.getProperty("user.home") + File.separator + ".cloudaws" + File.separator + "refdata");
+	public static final long DEFAULT_REFRESH = Long.getLong("cloudaws.refdata.refresh", 60000);
+
+	private static final int MAGIC = 0x43415244;
+	// Bumped whenever a codec changes; older files are ignored and rewritten.
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Writes and reads one item; the order of fields is the file format.
+	 */
+	public interface Codec<T> {
+		void write(DataOutput out, T item) throws IOException;
+
+		T read(DataInput in) throws IOException;
+	}
+
+	public static final Codec<Image> IMAGES = new Codec<Image>() {
+		public void write(DataOutput out, Image item) throws IOException {
+			writeString(out, item.getImageId());
+			writeString(out, item.getName());
+		}
+
+		public Image read(DataInput in) throws IOException {
+			return new Image().withImageId(readString(in)).withName(readString(in));
+		}
+	};
+
+	public static final Codec<AvailabilityZone> ZONES = new Codec<AvailabilityZone>() {
+		public void write(DataOutput out, AvailabilityZone item) throws IOException {
+			writeString(out, item.getZoneName());
+			writeString(out, item.getState());
+		}
+
+		public AvailabilityZone read(DataInput in) throws IOException {
+			return new AvailabilityZone().withZoneName(readString(in)).withState(readString(in));
+		}
+	};
+
+	public static final Codec<KeyPairInfo> KEY_PAIRS = new Codec<KeyPairInfo>() {
+		public void write(DataOutput out, KeyPairInfo item) throws IOException {
+			writeString(out, item.getKeyName());
+		}
+
+		public KeyPairInfo read(DataInput in) throws IOException {
+			return new KeyPairInfo().withKeyName(readString(in));
+		}
+	};
+
+	public static final Codec<SecurityGroup> SECURITY_GROUPS = new Codec<SecurityGroup>() {
+		public void write(DataOutput out, SecurityGroup item) throws IOException {
+			writeString(out, item.getGroupId());
+			writeString(out, item.getGroupName());
+		}
+
+		public SecurityGroup read(DataInput in) throws IOException {
+			return new SecurityGroup().withGroupId(readString(in)).withGroupName(readString(in));
+		}
+	};
+
+	public static final Codec<Region> REGIONS = new Codec<Region>() {
+		public void write(DataOutput out, Region item) throws IOException {
+			writeString(out, item.getRegionName());
+			writeString(out, item.getEndpoint());
+		}
+
+		public Region read(DataInput in) throws IOException {
+			return new Region().withRegionName(readString(in)).withEndpoint(readString(in));
+		}
+	};
+
+	private final Path dir;
+	private final long refreshMillis;
+	private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+	public ReferenceCache(String dir, long refresh) {
+		this.dir = Paths.get(dir);
+		this.refreshMillis = refresh;
+	}
+
+	/**
+	 * Completes with the cached list if there is one, otherwise with the fetched one.
+	 *
+	 * @param key e.g. {@code default/us-east-2/images}; becomes the file path under the cache directory
+	 * @param onChange called with the new list when a background refresh finds different data; may be null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<List<T>> get(String key, Codec<T> codec, Supplier<CompletableFuture<List<T>>> fetch, Consumer<List<T>> onChange) {
+		Slot slot = slots.computeIfAbsent(key, Slot::new);
+
+		return slot.load(() -> read(key, codec)).thenCompose(cached -> {
+			if (cached == null) return refresh(slot, codec, fetch);
+
+			if (slot.shouldRefresh(refreshMillis)) {
+				refresh(slot, codec, fetch).thenAccept(fresh -> {
+					if (fresh != cached.items && onChange != null) onChange.accept(fresh);
+				}).exceptionally(err -> {
+					System.err.println("Failed to refresh " + key + ": " + err.getMessage());
+					return null;
+				});
+			}
+			return CompletableFuture.completedFuture((List<T>) cached.items);
+		});
+	}
+
+	// Completes with the cached list itself (same instance) when nothing changed.
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<List<T>> refresh(Slot slot, Codec<T> codec, Supplier<CompletableFuture<List<T>>> fetch) {
+		return fetch.get().thenApplyAsync(items -> {
+			byte[] encoded;
+			try {
+				encoded = encode(codec, items);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+
+			Cached previous = slot.swap(encoded, items);
+			if (previous != null && Arrays.equals(previous.encoded, encoded)) return (List<T>) previous.items;
+
+			write(slot.key, encoded);
+			return Collections.unmodifiableList(new ArrayList<>(items));
+		}, Main.IO_POOL);
+	}
+
+	private <T> Cached read(String key, Codec<T> codec) {
+		Path file = file(key);
+		if (!Files.isRegularFile(file)) return null;
+
+		try {
+			byte[] encoded = Files.readAllBytes(file);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+
+			int count = in.readInt();
+			List<T> items = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) items.add(codec.read(in));
+			return new Cached(encoded, Collections.unmodifiableList(items));
+		} catch (IOException ex) {
+			// Truncated or foreign; refetched and overwritten.
+			System.err.println("Ignoring reference cache " + file + ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private void write(String key, byte[] encoded) {
+		Path file = file(key);
+		try {
+			Files.createDirectories(file.getParent());
+			Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			Files.write(tmp, encoded);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			System.err.println("Failed to write reference cache " + file + ": " + ex.getMessage());
+		}
+	}
+
+	private Path file(String key) {
+		return dir.resolve(key.replaceAll("[^\\w\\-/]", "_") + ".bin");
+	}
+
+	private static <T> byte[] encode(Codec<T> codec, List<T> items) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(items.size());
+		for (T item : items) codec.write(out, item);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) out.writeUTF(value);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static final class Cached {
+		final byte[] encoded;
+		final List<?> items;
+
+		Cached(byte[] encoded, List<?> items) {
+			this.encoded = encoded;
+			this.items = items;
+		}
+	}
+
+	private static final class Slot {
+		final String key;
+		private CompletableFuture<Cached> loaded;
+		private Cached current;
+		private long refreshedAt = 0;
+
+		Slot(String key) {
+			this.key = key;
+		}
+
+		// The file is read once per run; later calls are served from memory.
+		synchronized CompletableFuture<Cached> load(Supplier<Cached> reader) {
+			if (current != null) return CompletableFuture.completedFuture(current);
+			if (loaded == null) {
+				loaded = CompletableFuture.supplyAsync(reader, Main.IO_POOL).thenApply(this::adopt);
+			}
+			return loaded;
+		}
+
+		synchronized Cached adopt(Cached read) {
+			if (current == null) current = read;
+			return current;
+		}
+
+		synchronized boolean shouldRefresh(long refreshMillis) {
+			long now = System.currentTimeMillis();
+			if (now - refreshedAt < refreshMillis) return false;
+
+			refreshedAt = now;
+			return true;
+		}
+
+		synchronized Cached swap(byte[] encoded, List<?> items) {
+			Cached previous = current;
+			if (previous == null || !Arrays.equals(previous.encoded, encoded)) {
+				current = new Cached(encoded, Collections.unmodifiableList(new ArrayList<>(items)));
+			}
+			refreshedAt = System.currentTimeMillis();
+			return previous;
+		}
+	}
+}
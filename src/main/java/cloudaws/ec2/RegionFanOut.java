@@ -0,0 +1,55 @@
+package cloudaws.ec2;
+
+import cloudaws.concurrent.BoundedFanOut;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs one query per region, at most {@code parallelism} at a time, and hands each region's outcome
+ * over as soon as it arrives. A failing region does not fail the others.
+ */
+public final class RegionFanOut {
+	public static final int DEFAULT_PARALLELISM = Integer.getInteger("cloudaws.ec2.fanout.parallelism", 4);
+
+	private RegionFanOut() {}
+
+	public static final class Result<T> {
+		private final String region;
+		private final T value;
+		private final Throwable error;
+
+		Result(String region, T value, Throwable error) {
+			this.region = region;
+			this.value = value;
+			this.error = error;
+		}
+
+		public String getRegion() {
+			return region;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+	}
+
+	/**
+	 * Completes with one result per region, in the order the regions were given.
+	 * Cancelling the returned future stops regions that have not started yet.
+	 */
+	public static <T> CompletableFuture<List<Result<T>>> run(Collection<String> regions, int parallelism, Function<String, CompletableFuture<T>> query, Consumer<Result<T>> onResult) {
+		List<String> order = new ArrayList<>(new LinkedHashSet<>(regions));
+		return BoundedFanOut.run(order, parallelism, query, (region, value, error, elapsed) -> new Result<>(region, value, error), onResult);
+	}
+}
@@ -0,0 +1,7 @@
+package cloudaws.metrics;
+
+public interface GaugeMXBean {
+	String getName();
+
+	long getValue();
+}
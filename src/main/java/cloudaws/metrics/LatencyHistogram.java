@@ -0,0 +1,77 @@
+package cloudaws.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds.
+ * Every power of two is split into 8 linear buckets, so percentiles are accurate to about 12%.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int MAX_EXP = 40;
+	private static final int BUCKETS = SUB + (MAX_EXP - SUB_BITS + 1) * SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long micros) {
+		long value = Math.max(0, micros);
+		counts.incrementAndGet(index(value));
+		total.incrementAndGet();
+
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// Retry until the larger value is published.
+		}
+	}
+
+	public long count() {
+		return total.get();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * @param quantile between 0 and 1
+	 * @return the upper bound of the bucket holding that quantile, in microseconds
+	 */
+	public long percentile(double quantile) {
+		long n = total.get();
+		if (n == 0) return 0;
+
+		long rank = (long) Math.ceil(Math.min(1, Math.max(0, quantile)) * n);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= Math.max(1, rank)) return Math.min(upperBound(i), max.get());
+		}
+		return max.get();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+		total.set(0);
+		max.set(0);
+	}
+
+	static int index(long value) {
+		if (value < SUB) return (int) value;
+
+		int exp = Math.min(MAX_EXP, 63 - Long.numberOfLeadingZeros(value));
+		int sub = (int) ((value >>> (exp - SUB_BITS)) & (SUB - 1));
+		return SUB + (exp - SUB_BITS) * SUB + sub;
+	}
+
+	static long upperBound(int index) {
+		if (index < SUB) return index;
+
+		int exp = (index - SUB) / SUB + SUB_BITS;
+		int sub = (index - SUB) % SUB;
+		return ((long) (SUB + sub + 1) << (exp - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,85 @@
+package cloudaws.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of operations and gauges. Everything registered here is also
+ * published over JMX under the {@code cloudaws} domain.
+ */
+public final class Metrics {
+	private static final String DOMAIN = "cloudaws";
+
+	private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+	private static final Map<String, Gauge> GAUGES = new ConcurrentSkipListMap<>();
+
+	private Metrics() {}
+
+	public static Operation operation(String name) {
+		Operation op = OPERATIONS.get(name);
+		if (op != null) return op;
+
+		return OPERATIONS.computeIfAbsent(name, key -> {
+			Operation created = new Operation(key);
+			register("Operation", key, created);
+			return created;
+		});
+	}
+
+	public static void gauge(String name, LongSupplier value) {
+		Gauge gauge = new Gauge(name, value);
+		if (GAUGES.putIfAbsent(name, gauge) == null) register("Gauge", name, gauge);
+	}
+
+	public static List<Operation> operations() {
+		List<Operation> list = new ArrayList<>(OPERATIONS.values());
+		list.sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
+		return list;
+	}
+
+	public static List<Gauge> gauges() {
+		return new ArrayList<>(GAUGES.values());
+	}
+
+	private static void register(String type, String name, Object bean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName id = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			if (!server.isRegistered(id)) server.registerMBean(bean, id);
+		} catch (Exception ex) {
+			// Metrics keep working in-process even if JMX is unavailable.
+			System.err.println("Failed to publish " + name + " over JMX: " + ex.getMessage());
+		}
+	}
+
+	public static final class Gauge implements GaugeMXBean {
+		private final String name;
+		private final LongSupplier value;
+
+		Gauge(String name, LongSupplier value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public long getValue() {
+			try {
+				return value.getAsLong();
+			} catch (RuntimeException ex) {
+				return -1;
+			}
+		}
+	}
+}
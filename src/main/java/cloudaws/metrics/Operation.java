@@ -0,0 +1,112 @@
+package cloudaws.metrics;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency, throughput, error and in-flight accounting for one kind of call.
+ */
+public final class Operation implements OperationMXBean {
+	// Throughput is averaged over the last WINDOW complete seconds.
+	private static final int WINDOW = 60;
+
+	private final String name;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong inFlight = new AtomicLong();
+
+	private final AtomicLongArray perSecond = new AtomicLongArray(WINDOW);
+	private final AtomicLongArray stamps = new AtomicLongArray(WINDOW);
+
+	Operation(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return a start token to hand back to {@link #end(long, Throwable)}
+	 */
+	public long begin() {
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	public void end(long start, Throwable error) {
+		inFlight.decrementAndGet();
+		latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+		if (cause != null && !(cause instanceof CancellationException)) errors.incrementAndGet();
+
+		long second = System.currentTimeMillis() / 1000;
+		int slot = (int) (second % WINDOW);
+		long stamp = stamps.get(slot);
+		if (stamp != second && stamps.compareAndSet(slot, stamp, second)) perSecond.set(slot, 0);
+		perSecond.incrementAndGet(slot);
+	}
+
+	public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+		long start = begin();
+		future.whenComplete((res, err) -> end(start, err));
+		return future;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCount() {
+		return latency.count();
+	}
+
+	@Override
+	public long getErrors() {
+		return errors.get();
+	}
+
+	@Override
+	public long getInFlight() {
+		return inFlight.get();
+	}
+
+	@Override
+	public double getThroughputPerSecond() {
+		long now = System.currentTimeMillis() / 1000;
+		long sum = 0;
+		for (int i = 0; i < WINDOW; i++) {
+			long age = now - stamps.get(i);
+			if (age >= 1 && age <= WINDOW) sum += perSecond.get(i);
+		}
+		return (double) sum / WINDOW;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return latency.percentile(0.5) / 1000.0;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latency.percentile(0.99) / 1000.0;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latency.max() / 1000.0;
+	}
+
+	@Override
+	public void reset() {
+		latency.reset();
+		errors.set(0);
+		for (int i = 0; i < WINDOW; i++) {
+			perSecond.set(i, 0);
+			stamps.set(i, 0);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package cloudaws.metrics;
+
+public interface OperationMXBean {
+	String getName();
+
+	long getCount();
+
+	long getErrors();
+
+	long getInFlight();
+
+	double getThroughputPerSecond();
+
+	double getP50Millis();
+
+	double getP99Millis();
+
+	double getMaxMillis();
+
+	void reset();
+}
@@ -0,0 +1,59 @@
+package cloudaws.ssh;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The lines of one output stream, kept up to {@link OutputLimits#getMaxRetained()} characters.
+ */
+class BoundedLines {
+	private final OutputLimits limits;
+	private final Deque<String> lines = new ArrayDeque<>();
+	private long retained = 0;
+	private long dropped = 0;
+	private boolean exceeded = false;
+
+	BoundedLines(OutputLimits limits) {
+		this.limits = limits;
+	}
+
+	synchronized void add(String line) {
+		// Counted with its line break.
+		long size = line.length() + 1;
+		if (retained + size <= limits.getMaxRetained()) {
+			lines.addLast(line);
+			retained += size;
+			return;
+		}
+
+		exceeded = true;
+		if (limits.getTruncation() != OutputLimits.Truncation.TAIL || size > limits.getMaxRetained()) {
+			dropped++;
+			return;
+		}
+
+		while (retained + size > limits.getMaxRetained()) {
+			retained -= lines.removeFirst().length() + 1;
+			dropped++;
+		}
+		lines.addLast(line);
+		retained += size;
+	}
+
+	/**
+	 * Whether the command has to be stopped under {@link OutputLimits.Truncation#FAIL}.
+	 */
+	synchronized boolean mustFail() {
+		return exceeded && limits.getTruncation() == OutputLimits.Truncation.FAIL;
+	}
+
+	synchronized List<String> lines() {
+		return new ArrayList<>(lines);
+	}
+
+	synchronized long dropped() {
+		return dropped;
+	}
+}
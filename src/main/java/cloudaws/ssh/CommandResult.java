@@ -0,0 +1,79 @@
+package cloudaws.ssh;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a remote command left behind once its channel closed.
+ */
+public final class CommandResult {
+	private final int exitStatus;
+	private final List<String> stdout;
+	private final List<String> stderr;
+	private final long elapsed;
+	private final long droppedLines;
+	private final long truncatedLines;
+
+	CommandResult(int exitStatus, List<String> stdout, List<String> stderr, long elapsed) {
+		this(exitStatus, stdout, stderr, elapsed, 0, 0);
+	}
+
+	CommandResult(int exitStatus, List<String> stdout, List<String> stderr, long elapsed, long droppedLines, long truncatedLines) {
+		this.exitStatus = exitStatus;
+		this.stdout = Collections.unmodifiableList(stdout);
+		this.stderr = Collections.unmodifiableList(stderr);
+		this.elapsed = elapsed;
+		this.droppedLines = droppedLines;
+		this.truncatedLines = truncatedLines;
+	}
+
+	/**
+	 * The command's exit status, or -1 if the server closed the channel without sending one.
+	 */
+	public int getExitStatus() {
+		return exitStatus;
+	}
+
+	public boolean isSuccess() {
+		return exitStatus == 0;
+	}
+
+	public List<String> getStdout() {
+		return stdout;
+	}
+
+	public List<String> getStderr() {
+		return stderr;
+	}
+
+	/**
+	 * Milliseconds from sending the command to the channel closing.
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Lines left out of {@link #getStdout()} and {@link #getStderr()} by the {@link OutputLimits}.
+	 */
+	public long getDroppedLines() {
+		return droppedLines;
+	}
+
+	/**
+	 * Lines that were cut at {@link OutputLimits#getMaxLine()} characters.
+	 */
+	public long getTruncatedLines() {
+		return truncatedLines;
+	}
+
+	public boolean isTruncated() {
+		return droppedLines > 0 || truncatedLines > 0;
+	}
+
+	@Override
+	public String toString() {
+		return "exit " + exitStatus + " after " + elapsed + " ms, " + stdout.size() + " line(s) out, " + stderr.size() + " line(s) err"
+				+ (isTruncated() ? " (" + droppedLines + " dropped, " + truncatedLines + " cut)" : "");
+	}
+}
@@ -2,123 +2,246 @@ package cloudaws.ssh;
 
 import cloudaws.Main;
 import cloudaws.concurrent.Promise;
+import cloudaws.metrics.Metrics;
+import cloudaws.metrics.Operation;
 import com.jcraft.jsch.ChannelExec;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.InterruptedIOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeoutException;
 
 public class EC2SecureShell {
 
 	private static final String USER = "ec2-user";
 	private static final int SECOND = 1000;
+	private static final long DEFAULT_TIMEOUT = 10 * SECOND;
+	private static final int CHANNEL_TIMEOUT = 10 * SECOND;
+	// Between EOF and the channel closing; usually a single round.
+	private static final long CLOSE_POLL = 10;
+	private static final int READ_BUFFER = 16 * 1024;
+	private static final Operation EXEC = Metrics.operation("ssh.exec");
 
 	private final String keyPath;
 	private final String address;
-
-	private final JSch jsch;
-	private Session session;
-
-	private byte[] buffer = new byte[4096];
+	private final SessionPool pool;
 
 	public EC2SecureShell(String address, String keyPath) throws JSchException {
-		jsch = new JSch();
+		this(address, keyPath, SessionPool.SHARED);
+	}
 
+	// Sessions come from `pool`, so shells for the same host and key share one connection.
+	public EC2SecureShell(String address, String keyPath, SessionPool pool) throws JSchException {
 		this.keyPath = keyPath;
 		this.address = address;
+		this.pool = pool;
 
-		jsch.addIdentity(this.keyPath);
-		session = jsch.getSession(USER, this.address, 22);
-
-		session.setConfig("StrictHostKeyChecking", "no");
-		session.setConfig("GSSAPIAuthentication", "no");
-		session.setConfig("TCPKeepAlive", "yes");
-
-		session.setServerAliveInterval(60 * SECOND);
-		session.setServerAliveCountMax(30);
+		// Fails early on a bad key; parsed once per key file.
+		pool.identity(this.keyPath);
 	}
 
+	/**
+	 * Opens the pooled session ahead of the first command.
+	 */
 	public void connect() throws JSchException {
-		connect(30);
+		pool.acquire(USER, address, keyPath).close();
+	}
+
+	public enum Output { STDOUT, STDERR }
+
+	@FunctionalInterface
+	public interface OutputListener {
+		/**
+		 * Called for every line as it arrives, without the line break; on JSch's or an I/O thread.
+		 */
+		void onLine(Output output, String line);
 	}
 
-	public void connect(int sec) throws JSchException {
-		session.connect(sec * SECOND);
+	@FunctionalInterface
+	public interface OutputSink {
+		/**
+		 * Called with every chunk of standard output as it is read, on an I/O thread. The array is reused
+		 * once this returns. Throwing stops the command and fails it with the exception.
+		 */
+		void write(byte[] buffer, int off, int len) throws IOException;
 	}
 
 	public CompletableFuture<List<String>> getSSHResponse(String command) {
-		return this.getSSHResponse("", command, 5 * SECOND);
+		return this.getSSHResponse("", command, DEFAULT_TIMEOUT);
 	}
 
 	public CompletableFuture<List<String>> getSSHResponse(String srcDir, String command) {
-		return this.getSSHResponse(srcDir, command, 5 * SECOND);
+		return this.getSSHResponse(srcDir, command, DEFAULT_TIMEOUT);
 	}
 
 	public CompletableFuture<List<String>> getSSHResponse(String command, long timeout) {
 		return this.getSSHResponse("", command, timeout);
 	}
 
+	/**
+	 * The command's standard output; fails if it exits with a non-zero status.
+	 *
+	 * @param timeout deadline for the whole command, in ms
+	 */
 	public CompletableFuture<List<String>> getSSHResponse(String srcDir, String command, long timeout) {
-		CompletableFuture<List<String>> future = new CompletableFuture<>();
-		Main.PROMISE_POOL.submit(() -> {
-			ChannelExec channel = null;
-			InputStream stream = null;
+		return exec(srcDir, command, timeout, null).thenApply(result -> {
+			if (result.isSuccess()) return result.getStdout();
 
-			try {
-				this.connect();
-				if (srcDir.length() > 0) {
-					channel = (ChannelExec) session.openChannel("exec");
-					channel.setCommand("cd " + srcDir);
+			String reason = result.getStderr().isEmpty() ? "" : ": " + result.getStderr().get(0);
+			throw new CompletionException(new IOException("`" + command + "` exited with " + result.getExitStatus() + reason));
+		});
+	}
 
-					channel.connect();
-					channel.disconnect();
-					channel = null;
-				}
+	public CompletableFuture<CommandResult> exec(String workDir, String command, long timeout, OutputListener listener) {
+		return exec(workDir, command, timeout, listener, OutputLimits.DEFAULT);
+	}
 
-				channel = (ChannelExec) session.openChannel("exec");
-				channel.setCommand(command);
+	/**
+	 * Runs {@code command} in {@code workDir} (may be empty) and completes as soon as the channel closes,
+	 * with the exit status and the output, as much of it as {@code limits} allow. Every line is also
+	 * passed to {@code listener} as it comes in, so large output can be consumed without keeping it.
+	 * Fails with a {@link TimeoutException} after {@code timeout} ms, which closes the channel.
+	 */
+	public CompletableFuture<CommandResult> exec(String workDir, String command, long timeout, OutputListener listener, OutputLimits limits) {
+		return exec(workDir, command, timeout, listener, limits, null);
+	}
 
-				stream = channel.getInputStream();
-				channel.connect();
+	/**
+	 * Like {@link #exec(String, String, long, OutputListener, OutputLimits)}, but standard output goes to
+	 * {@code sink} as raw bytes, for output that is parsed rather than read line by line. It is neither
+	 * split into lines nor kept; the listener and the result only see standard error.
+	 */
+	public CompletableFuture<CommandResult> exec(String workDir, String command, long timeout, OutputListener listener, OutputLimits limits, OutputSink sink) {
+		Promise<CommandResult> future = new Promise<>(timeout);
+		EXEC.track(future);
+		// Each exec channel starts a fresh shell, so the directory change has to be part of the command.
+		String line = workDir == null || workDir.isEmpty() ? command : "cd " + workDir + " && " + command;
+
+		future.bind(Main.IO_POOL.submit(() -> {
+			long started = System.currentTimeMillis();
+			BoundedLines stdout = new BoundedLines(limits);
+			BoundedLines stderr = new BoundedLines(limits);
+			SessionPool.Lease lease = null;
+			ChannelExec channel = null;
 
-				Thread.sleep(timeout);
-				if (stream.available() == 0) {
-					future.completeExceptionally(new TimeoutException("Failed to fetch HTCondor status from server."));
-					return false;
+			try {
+				lease = pool.acquire(USER, address, keyPath);
+
+				// JSch pushes stderr from its own thread; stdout is read below.
+				LineSplitter err = new LineSplitter(text -> {
+					stderr.add(text);
+					notify(listener, Output.STDERR, text);
+				}, limits.getMaxLine());
+				LineSplitter out = new LineSplitter(text -> {
+					stdout.add(text);
+					notify(listener, Output.STDOUT, text);
+				}, limits.getMaxLine());
+
+				channel = openExec(lease, line, err);
+				InputStream stream = channel.getInputStream();
+				try {
+					channel.connect(CHANNEL_TIMEOUT);
+				} catch (JSchException ex) {
+					if (Thread.currentThread().isInterrupted()) throw ex;
+
+					// A half-open session still looks connected; a channel that cannot connect is the first sign.
+					// Retried once on a new session, and the old one is kept from the next command.
+					channel.disconnect();
+					lease.reconnect();
+					channel = openExec(lease, line, err);
+					stream = channel.getInputStream();
+					try {
+						channel.connect(CHANNEL_TIMEOUT);
+					} catch (JSchException again) {
+						lease.discard();
+						throw again;
+					}
 				}
 
-				StringBuilder response = new StringBuilder();
+				// Per call: a buffer shared between concurrent commands would mix their output.
+				byte[] buffer = new byte[READ_BUFFER];
 				int len;
-				while ((len = stream.read(buffer, 0, buffer.length)) > 0) {
-					response.append(new String(buffer, 0, len));
+				while ((len = stream.read(buffer, 0, buffer.length)) >= 0) {
+					if (sink != null) {
+						try {
+							sink.write(buffer, 0, len);
+						} catch (IOException | RuntimeException ex) {
+							// The consumer's error, not the connection's.
+							future.reject(ex);
+							return false;
+						}
+					}
+					else {
+						out.write(buffer, 0, len);
+					}
+					if (stdout.mustFail() || stderr.mustFail()) return overLimit(future, command, limits);
 				}
-
-				future.complete(Arrays.asList(response.toString().split("\n")));
+				out.close();
+
+				// The exit status comes with or right after EOF; wait for the close that follows it.
+				while (!channel.isClosed()) Thread.sleep(CLOSE_POLL);
+				err.close();
+				if (stderr.mustFail()) return overLimit(future, command, limits);
+
+				future.resolve(new CommandResult(
+						channel.getExitStatus(),
+						stdout.lines(),
+						stderr.lines(),
+						System.currentTimeMillis() - started,
+						stdout.dropped() + stderr.dropped(),
+						out.getTruncatedLines() + err.getTruncatedLines()
+				));
 				return true;
+			} catch (InterruptedIOException ex) {
+				// The deadline or a cancel interrupted the read; it settles the promise with its own error.
 			} catch (JSchException | IOException ex) {
-				System.err.println("SSH Connection error occurred.");
-				future.completeExceptionally(ex);
+				// Same for a connect that gave up because of the interrupt.
+				if (!future.isDone() && !Thread.currentThread().isInterrupted()) {
+					System.err.println("SSH Connection error occurred.");
+					future.reject(ex);
+				}
 			} finally {
 				if (channel != null) channel.disconnect();
-				if (stream != null) stream.close();
-				this.disconnect();
+				// Back to the pool; the session stays open for the next command.
+				if (lease != null) lease.close();
 			}
 			return false;
-		});
+		}));
+
+		return future;
+	}
+
+	private static ChannelExec openExec(SessionPool.Lease lease, String command, LineSplitter err) throws JSchException {
+		ChannelExec channel = (ChannelExec) lease.openChannel("exec");
+		channel.setCommand(command);
+		channel.setInputStream(null);
+		channel.setErrStream(err, true);
+		return channel;
+	}
+
+	private static boolean overLimit(Promise<CommandResult> future, String command, OutputLimits limits) {
+		System.err.println("Output of `" + command + "` exceeded the output limit; the command was stopped.");
+		future.reject(new IOException("Output of `" + command + "` exceeds " + limits.getMaxRetained() + " characters."));
+		return false;
+	}
 
-		return new Promise<>(future, 5 * SECOND);
+	private static void notify(OutputListener listener, Output output, String line) {
+		if (listener == null) return;
+		try {
+			listener.onLine(output, line);
+		} catch (RuntimeException ex) {
+			System.err.println("Output listener failed: " + ex.getMessage());
+		}
 	}
 
+	/**
+	 * Closes this host's idle pooled sessions; commands still running keep theirs until they finish.
+	 */
 	public void disconnect() {
-		if (session != null) session.disconnect();
+		pool.close(USER, address);
 	}
 }
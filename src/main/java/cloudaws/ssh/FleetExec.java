@@ -0,0 +1,110 @@
+package cloudaws.ssh;
+
+import cloudaws.concurrent.BoundedFanOut;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Runs one command on many hosts, at most {@code parallelism} at a time, and hands each host's outcome
+ * over as soon as it finishes. A host that fails (unreachable, timed out, non-zero exit) does not stop the rest.
+ */
+public final class FleetExec {
+	public static final int DEFAULT_PARALLELISM = Integer.getInteger("cloudaws.ssh.fleet.parallelism", 32);
+
+	private FleetExec() {}
+
+	public static final class Target {
+		private final String name;
+		private final String address;
+
+		public Target(String name, String address) {
+			this.name = name;
+			this.address = address;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getAddress() {
+			return address;
+		}
+	}
+
+	public static final class HostResult {
+		private final Target target;
+		private final CommandResult result;
+		private final Throwable error;
+		private final long elapsed;
+
+		HostResult(Target target, CommandResult result, Throwable error, long elapsed) {
+			this.target = target;
+			this.result = result;
+			this.error = error;
+			this.elapsed = elapsed;
+		}
+
+		public Target getTarget() {
+			return target;
+		}
+
+		/**
+		 * Null if the command could not be run to completion; see {@link #getError()}.
+		 */
+		public CommandResult getResult() {
+			return result;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null && result.isSuccess();
+		}
+
+		/**
+		 * The exit status, or -1 if there is none.
+		 */
+		public int getExitStatus() {
+			return result != null ? result.getExitStatus() : -1;
+		}
+
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		/**
+		 * The line that best sums the outcome up: the error, or the first line of output.
+		 */
+		public String getSummary() {
+			if (error != null) return String.valueOf(error.getMessage());
+			if (!result.isSuccess() && !result.getStderr().isEmpty()) return result.getStderr().get(0);
+			if (!result.getStdout().isEmpty()) return result.getStdout().get(0);
+			return result.getStderr().isEmpty() ? "" : result.getStderr().get(0);
+		}
+	}
+
+	/**
+	 * Completes with one result per target, in the order the targets were given.
+	 * Cancelling the returned future stops hosts that have not started yet.
+	 */
+	public static CompletableFuture<List<HostResult>> run(List<Target> targets, String keyPath, String command, long timeout, int parallelism, Consumer<HostResult> onResult) {
+		return run(targets, keyPath, command, timeout, parallelism, SessionPool.SHARED, onResult);
+	}
+
+	static CompletableFuture<List<HostResult>> run(List<Target> targets, String keyPath, String command, long timeout, int parallelism, SessionPool pool, Consumer<HostResult> onResult) {
+		return BoundedFanOut.run(targets, parallelism, target -> {
+			try {
+				if (target.getAddress() == null) throw new IllegalStateException("No public address");
+				return new EC2SecureShell(target.getAddress(), keyPath, pool).exec("", command, timeout, null);
+			} catch (Exception ex) {
+				CompletableFuture<CommandResult> failed = new CompletableFuture<>();
+				failed.completeExceptionally(ex);
+				return failed;
+			}
+		}, HostResult::new, onResult);
+	}
+}
@@ -0,0 +1,128 @@
+package cloudaws.ssh;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Decodes a UTF-8 byte stream into lines as the bytes arrive. The buffers are allocated once and reused,
+ * so memory stays at a few KB plus the longest line, which is capped at {@code maxLine} characters.
+ * A character split across two writes is kept until its remaining bytes arrive; malformed input
+ * becomes U+FFFD. A trailing line without a newline is emitted on close.
+ */
+class LineSplitter extends OutputStream {
+	private static final int BUFFER = 8192;
+
+	private final Consumer<String> onLine;
+	private final int maxLine;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER);
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER);
+	private final StringBuilder line = new StringBuilder(256);
+
+	private boolean overflow = false;
+	private long truncatedLines = 0;
+	private boolean closed = false;
+
+	LineSplitter(Consumer<String> onLine) {
+		this(onLine, OutputLimits.DEFAULT_MAX_LINE);
+	}
+
+	LineSplitter(Consumer<String> onLine, int maxLine) {
+		this.onLine = onLine;
+		this.maxLine = Math.max(1, maxLine);
+	}
+
+	@Override
+	public synchronized void write(int b) {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) {
+		if (closed) return;
+
+		if (bytes.position() == 0) {
+			// Nothing pending: decode straight from the caller's array and keep only a split character.
+			ByteBuffer input = ByteBuffer.wrap(b, off, len);
+			decode(input, false);
+			bytes.put(input);
+			return;
+		}
+		while (len > 0) {
+			int n = Math.min(len, bytes.remaining());
+			bytes.put(b, off, n);
+			off += n;
+			len -= n;
+			bytes.flip();
+			decode(bytes, false);
+			// Keeps an incomplete multi-byte sequence for the next write.
+			bytes.compact();
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) return;
+
+		closed = true;
+		bytes.flip();
+		decode(bytes, true);
+		decoder.flush(chars);
+		drain();
+		if (line.length() > 0 || overflow) emit();
+	}
+
+	/**
+	 * Lines that were longer than {@code maxLine} and got cut.
+	 */
+	synchronized long getTruncatedLines() {
+		return truncatedLines;
+	}
+
+	private void decode(ByteBuffer input, boolean endOfInput) {
+		while (true) {
+			boolean full = decoder.decode(input, chars, endOfInput).isOverflow();
+			drain();
+			if (!full) break;
+		}
+	}
+
+	private void drain() {
+		char[] buf = chars.array();
+		int end = chars.position();
+		int start = 0;
+		for (int i = 0; i < end; i++) {
+			if (buf[i] != '\n') continue;
+
+			append(buf, start, i);
+			emit();
+			start = i + 1;
+		}
+		append(buf, start, end);
+		chars.clear();
+	}
+
+	private void append(char[] buf, int from, int to) {
+		int n = Math.min(to - from, maxLine - line.length());
+		if (n > 0) line.append(buf, from, n);
+		if (n < to - from) overflow = true;
+	}
+
+	private void emit() {
+		int len = line.length();
+		if (len > 0 && line.charAt(len - 1) == '\r') line.setLength(len - 1);
+		if (overflow) truncatedLines++;
+
+		String text = line.toString();
+		line.setLength(0);
+		overflow = false;
+		onLine.accept(text);
+	}
+}
@@ -0,0 +1,51 @@
+package cloudaws.ssh;
+
+/**
+ * How much of a command's output {@link EC2SecureShell#exec} keeps in memory. Listeners still see every
+ * line; the limits only apply to what ends up in the {@link CommandResult}.
+ */
+public final class OutputLimits {
+	public static final int DEFAULT_MAX_LINE = Integer.getInteger("cloudaws.ssh.output.maxLine", 16 * 1024);
+	public static final long DEFAULT_MAX_RETAINED = Long.getLong("cloudaws.ssh.output.maxRetained", 8L * 1024 * 1024);
+	public static final OutputLimits DEFAULT = new OutputLimits(DEFAULT_MAX_LINE, DEFAULT_MAX_RETAINED,
+			Truncation.valueOf(System.getProperty("cloudaws.ssh.output.truncation", Truncation.HEAD.name())));
+
+	public enum Truncation {
+		/** Keep the first lines, drop the rest. */
+		HEAD,
+		/** Keep the last lines, drop older ones. */
+		TAIL,
+		/** Stop the command and fail. */
+		FAIL
+	}
+
+	private final int maxLine;
+	private final long maxRetained;
+	private final Truncation truncation;
+
+	/**
+	 * @param maxLine characters per line; the rest of a longer line is dropped
+	 * @param maxRetained characters kept per stream (stdout, stderr)
+	 */
+	public OutputLimits(int maxLine, long maxRetained, Truncation truncation) {
+		this.maxLine = Math.max(1, maxLine);
+		this.maxRetained = Math.max(0, maxRetained);
+		this.truncation = truncation;
+	}
+
+	public int getMaxLine() {
+		return maxLine;
+	}
+
+	public long getMaxRetained() {
+		return maxRetained;
+	}
+
+	public Truncation getTruncation() {
+		return truncation;
+	}
+
+	public OutputLimits withTruncation(Truncation truncation) {
+		return new OutputLimits(maxLine, maxRetained, truncation);
+	}
+}
@@ -0,0 +1,310 @@
+package cloudaws.ssh;
+
+import cloudaws.Main;
+import cloudaws.metrics.Metrics;
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSH sessions kept open per (user, host, key) and shared by concurrent commands, each on its own
+ * channel. A session that has been idle for {@code idleTimeout} ms is closed; one that died (the
+ * server-alive check gave up, or the network dropped it) is replaced on the next use.
+ * Each key file is parsed once and reused until it changes on disk.
+ */
+public final class SessionPool {
+	public static final long DEFAULT_IDLE_TIMEOUT = Long.getLong("cloudaws.ssh.idle", 300000);
+	// OpenSSH allows 10 channels per connection (MaxSessions); stay below it.
+	public static final int DEFAULT_MAX_CHANNELS = Integer.getInteger("cloudaws.ssh.maxChannels", 8);
+	public static final SessionPool SHARED = new SessionPool(DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_CHANNELS, Main.SCHEDULER);
+	static {
+		Metrics.gauge("ssh.sessions", SHARED::sessions);
+		Metrics.gauge("ssh.channels", SHARED::channels);
+	}
+
+	private static final int SECOND = 1000;
+	private static final int CONNECT_TIMEOUT = 30 * SECOND;
+	private static final int PORT = 22;
+
+	private final long idleTimeout;
+	private final int maxChannels;
+	private final ScheduledExecutorService scheduler;
+
+	private final Map<String, Identity> identities = new HashMap<>();
+	private final Map<String, List<Entry>> sessions = new HashMap<>();
+	private ScheduledFuture<?> sweeper;
+
+	public SessionPool(long idleTimeout, int maxChannels, ScheduledExecutorService scheduler) {
+		this.idleTimeout = idleTimeout;
+		this.maxChannels = Math.max(1, maxChannels);
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * A connected session for {@code user@host} with the key at {@code keyPath}; connects if there is
+	 * none with a free channel. Blocks while connecting, so call it off the UI thread.
+	 */
+	public Lease acquire(String user, String host, String keyPath) throws JSchException {
+		JSch jsch = identity(keyPath);
+		String key = user + "@" + host + "#" + new File(keyPath).getAbsolutePath();
+		return new Lease(key, checkout(key, jsch, user, host, false));
+	}
+
+	/**
+	 * Parses the key file, or returns the already parsed one if the file has not changed since.
+	 */
+	public JSch identity(String keyPath) throws JSchException {
+		File file = new File(keyPath).getAbsoluteFile();
+		synchronized (identities) {
+			Identity identity = identities.get(file.getPath());
+			if (identity != null && identity.modified == file.lastModified()) return identity.jsch;
+
+			JSch jsch = new JSch();
+			jsch.addIdentity(file.getPath());
+			identities.put(file.getPath(), new Identity(jsch, file.lastModified()));
+			return jsch;
+		}
+	}
+
+	public synchronized int sessions() {
+		int count = 0;
+		for (List<Entry> list : sessions.values()) count += list.size();
+		return count;
+	}
+
+	public synchronized int channels() {
+		int count = 0;
+		for (List<Entry> list : sessions.values()) {
+			for (Entry entry : list) count += entry.channels;
+		}
+		return count;
+	}
+
+	/**
+	 * Closes the idle sessions of {@code user@host}; sessions in use close when released.
+	 */
+	public void close(String user, String host) {
+		List<Entry> closing = new ArrayList<>();
+		synchronized (this) {
+			String prefix = user + "@" + host + "#";
+			for (Map.Entry<String, List<Entry>> list : sessions.entrySet()) {
+				if (!list.getKey().startsWith(prefix)) continue;
+				for (Entry entry : list.getValue()) {
+					entry.retired = true;
+					if (entry.channels == 0) closing.add(entry);
+				}
+				list.getValue().removeAll(closing);
+			}
+			sessions.values().removeIf(List::isEmpty);
+		}
+		closing.forEach(Entry::disconnect);
+	}
+
+	public void shutdown() {
+		List<Entry> closing = new ArrayList<>();
+		synchronized (this) {
+			sessions.values().forEach(closing::addAll);
+			sessions.clear();
+			if (sweeper != null) sweeper.cancel(false);
+			sweeper = null;
+		}
+		closing.forEach(Entry::disconnect);
+	}
+
+	// `fresh` skips the sessions already open for `key`, which may share the fault just seen.
+	private Entry checkout(String key, JSch jsch, String user, String host, boolean fresh) throws JSchException {
+		Entry entry;
+		synchronized (this) {
+			List<Entry> list = sessions.computeIfAbsent(key, k -> new ArrayList<>());
+			list.removeIf(Entry::isDead);
+
+			entry = null;
+			for (Entry candidate : list) {
+				if (!fresh && candidate.channels < maxChannels) {
+					entry = candidate;
+					break;
+				}
+			}
+			if (entry == null) {
+				entry = new Entry(jsch, user, host);
+				list.add(entry);
+			}
+			entry.channels++;
+			startSweeper();
+		}
+
+		try {
+			entry.connect();
+			return entry;
+		} catch (JSchException | RuntimeException ex) {
+			release(key, entry, true);
+			throw ex;
+		}
+	}
+
+	private void release(String key, Entry entry, boolean broken) {
+		boolean close;
+		synchronized (this) {
+			entry.channels--;
+			entry.lastUsed = System.currentTimeMillis();
+			if (broken) entry.retired = true;
+
+			close = entry.retired && entry.channels == 0;
+			if (close) {
+				List<Entry> list = sessions.get(key);
+				if (list != null && list.remove(entry) && list.isEmpty()) sessions.remove(key);
+			}
+		}
+		if (close) entry.disconnect();
+	}
+
+	// Called with the lock held.
+	private void startSweeper() {
+		if (sweeper != null || scheduler == null) return;
+
+		long period = Math.max(SECOND, idleTimeout / 4);
+		sweeper = scheduler.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	private void evictIdle() {
+		List<Entry> closing = new ArrayList<>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (List<Entry> list : sessions.values()) {
+				for (Iterator<Entry> it = list.iterator(); it.hasNext(); ) {
+					Entry entry = it.next();
+					if (entry.channels == 0 && (now - entry.lastUsed >= idleTimeout || entry.isDead())) {
+						closing.add(entry);
+						it.remove();
+					}
+				}
+			}
+			sessions.values().removeIf(List::isEmpty);
+		}
+		closing.forEach(Entry::disconnect);
+	}
+
+	/**
+	 * One borrowed slot on a pooled session; closing it gives the slot back and keeps the session open.
+	 */
+	public final class Lease implements AutoCloseable {
+		private final String key;
+		private Entry entry;
+		private boolean released = false;
+
+		private Lease(String key, Entry entry) {
+			this.key = key;
+			this.entry = entry;
+		}
+
+		public Session getSession() {
+			return entry.session;
+		}
+
+		/**
+		 * Opens a channel of {@code type}, e.g. {@code exec}. If the session turns out to be dead,
+		 * it is replaced once with a fresh one.
+		 */
+		public Channel openChannel(String type) throws JSchException {
+			try {
+				return entry.session.openChannel(type);
+			} catch (JSchException ex) {
+				if (entry.session.isConnected()) throw ex;
+
+				reconnect();
+				return entry.session.openChannel(type);
+			}
+		}
+
+		/**
+		 * Retires the current session and moves this lease to a newly connected one. For failures JSch
+		 * does not notice itself, e.g. a channel that cannot connect on a half-open session.
+		 * If connecting fails, the lease is released.
+		 */
+		public void reconnect() throws JSchException {
+			Entry broken = entry;
+			released = true;
+			release(key, broken, true);
+
+			entry = checkout(key, broken.jsch, broken.user, broken.host, true);
+			released = false;
+		}
+
+		/**
+		 * Gives the slot back and retires the session, so no later lease gets it; it is closed once
+		 * the channels still open on it are done.
+		 */
+		public void discard() {
+			if (released) return;
+
+			released = true;
+			release(key, entry, true);
+		}
+
+		@Override
+		public void close() {
+			if (released) return;
+
+			released = true;
+			release(key, entry, !entry.session.isConnected());
+		}
+	}
+
+	private static final class Entry {
+		final JSch jsch;
+		final String user;
+		final String host;
+		volatile Session session;
+		int channels = 0;
+		long lastUsed = System.currentTimeMillis();
+		boolean retired = false;
+
+		Entry(JSch jsch, String user, String host) {
+			this.jsch = jsch;
+			this.user = user;
+			this.host = host;
+		}
+
+		// Concurrent borrowers of a new entry wait here for the one handshake.
+		synchronized void connect() throws JSchException {
+			if (session != null && session.isConnected()) return;
+
+			session = jsch.getSession(user, host, PORT);
+			session.setConfig("StrictHostKeyChecking", "no");
+			session.setConfig("GSSAPIAuthentication", "no");
+			session.setConfig("TCPKeepAlive", "yes");
+
+			// Probes the connection while it sits in the pool; JSch drops it after 30 missed answers.
+			session.setServerAliveInterval(60 * SECOND);
+			session.setServerAliveCountMax(30);
+			session.connect(CONNECT_TIMEOUT);
+		}
+
+		// Never connected entries are still being set up, not dead.
+		boolean isDead() {
+			Session current = session;
+			return retired || current != null && !current.isConnected();
+		}
+
+		synchronized void disconnect() {
+			if (session != null) session.disconnect();
+		}
+	}
+
+	private static final class Identity {
+		final JSch jsch;
+		final long modified;
+
+		Identity(JSch jsch, long modified) {
+			this.jsch = jsch;
+			this.modified = modified;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package cloudaws.ui.windows;
+
+import cloudaws.concurrent.Binding;
+import cloudaws.metrics.Metrics;
+import cloudaws.metrics.Operation;
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.gui2.*;
+import com.googlecode.lanterna.gui2.table.Table;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+public class Diagnostics extends WindowConstruction {
+
+	private static final int VISIBLE_ROWS = 12;
+
+	private Table<String> operations;
+	private Table<String> gauges;
+	private final Binding<Snapshot> snapshot;
+
+	public Diagnostics() {
+		super("Diagnostics");
+
+		this.snapshot = new Binding<>(() -> CompletableFuture.completedFuture(Snapshot.take()))
+				.withNotifier(this, this::updateTables);
+		this.snapshot.start();
+	}
+
+	@Override
+	protected void buildComponents() {
+		this.setHints(Collections.singletonList(Hint.CENTERED));
+
+		Panel panel = new Panel();
+		panel.setLayoutManager(
+				new GridLayout(1)
+						.setLeftMarginSize(1)
+						.setRightMarginSize(1)
+		);
+
+		operations = new Table<>("Operation", "Count", "Err", "Busy", "Rate/s", "p50 ms", "p99 ms", "Max ms");
+		operations.setVisibleRows(VISIBLE_ROWS);
+		gauges = new Table<>("Gauge", "Value");
+		gauges.setVisibleRows(VISIBLE_ROWS);
+
+		panel.addComponent(new Label("- Operations").addStyle(SGR.BOLD));
+		panel.addComponent(operations);
+		panel.addComponent(new EmptySpace(TerminalSize.ONE));
+		panel.addComponent(new Label("- Gauges").addStyle(SGR.BOLD));
+		panel.addComponent(gauges);
+		panel.addComponent(new EmptySpace(TerminalSize.ONE));
+
+		Button closeButton = new Button(LocalizedString.Close.toString(), this::close)
+				.setLayoutData(GridLayout.createLayoutData(
+						GridLayout.Alignment.CENTER,
+						GridLayout.Alignment.CENTER,
+						true,
+						false
+				));
+		panel.addComponent(closeButton);
+
+		this.setComponent(panel);
+		closeButton.takeFocus();
+	}
+
+	private void updateTables(Snapshot data) {
+		fill(operations, data.operations);
+		fill(gauges, data.gauges);
+		this.invalidate();
+	}
+
+	private static void fill(Table<String> table, List<List<String>> rows) {
+		table.getTableModel().clear();
+		rows.forEach(row -> table.getTableModel().addRow(row));
+	}
+
+	@Override
+	public void close() {
+		snapshot.stop();
+		snapshot.clear();
+		super.close();
+	}
+
+	private static final class Snapshot {
+		private final List<List<String>> operations = new ArrayList<>();
+		private final List<List<String>> gauges = new ArrayList<>();
+
+		static Snapshot take() {
+			Snapshot snapshot = new Snapshot();
+			for (Operation op : Metrics.operations()) {
+				snapshot.operations.add(Arrays.asList(
+						op.getName(),
+						String.valueOf(op.getCount()),
+						String.valueOf(op.getErrors()),
+						String.valueOf(op.getInFlight()),
+						String.format("%.2f", op.getThroughputPerSecond()),
+						String.format("%.1f", op.getP50Millis()),
+						String.format("%.1f", op.getP99Millis()),
+						String.format("%.1f", op.getMaxMillis())
+				));
+			}
+			for (Metrics.Gauge gauge : Metrics.gauges()) {
+				snapshot.gauges.add(Arrays.asList(gauge.getName(), String.valueOf(gauge.getValue())));
+			}
+			return snapshot;
+		}
+	}
+}
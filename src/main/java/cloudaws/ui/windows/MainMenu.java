@@ -2,6 +2,7 @@ package cloudaws.ui.windows;
 
 import cloudaws.ui.windows.ec2.ChangeRegion;
 import cloudaws.ui.windows.ec2.CondorStatus;
+import cloudaws.ui.windows.ec2.FleetCommand;
 import cloudaws.ui.windows.ec2.InstanceList;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.gui2.*;
@@ -65,6 +66,14 @@ public class MainMenu extends WindowConstruction {
 			getTextGUI().addWindowAndWait(new CondorStatus());
 		});
 
+		menus.put("Fleet Command", () -> {
+			getTextGUI().addWindowAndWait(new FleetCommand());
+		});
+
+		menus.put("Diagnostics", () -> {
+			getTextGUI().addWindowAndWait(new Diagnostics());
+		});
+
 		return menus;
 	}
 }
@@ -26,7 +26,11 @@ public class ChangeRegion extends PendingWindow {
 		super();
 		setWidth(30);
 
-		Main.EC2().availableRegions().thenAccept(res -> {
+		// From the on-disk cache when possible; redrawn only if a refresh finds a different list.
+		Main.EC2().cachedRegions(res -> {
+			this.regions = res;
+			this.updatePanel();
+		}).thenAccept(res -> {
 			this.regions = res;
 			this.updatePanel();
 		}).exceptionally(err -> {
@@ -44,17 +48,15 @@ public class ChangeRegion extends PendingWindow {
 				.setRightMarginSize(1)
 		);
 
+		String selected = cRegions != null ? cRegions.getSelectedItem() : Main.EC2().getCurrentRegion();
 		panel.addComponent(new Label("Select a region: "));
 		cRegions = new ComboBox<String>(this.regions.stream().map(Region::getRegionName).collect(Collectors.toList()))
 				.setReadOnly(true)
 				.setPreferredSize(new TerminalSize(30, 1));
 		panel.addComponent(cRegions);
 
-		lastIndex = IntStream.range(0, this.regions.size())
-				.filter(i -> this.regions.get(i).getRegionName().equals(Main.EC2().getCurrentRegion()))
-				.findFirst()
-				.orElse(0);
-		cRegions.setSelectedIndex(lastIndex);
+		lastIndex = indexOf(Main.EC2().getCurrentRegion());
+		cRegions.setSelectedIndex(indexOf(selected));
 
 		panel.addComponent(new EmptySpace(TerminalSize.ONE));
 		panel.addComponent(closeButton);
@@ -62,6 +64,13 @@ public class ChangeRegion extends PendingWindow {
 		cRegions.takeFocus();
 	}
 
+	private int indexOf(String region) {
+		return IntStream.range(0, this.regions.size())
+				.filter(i -> this.regions.get(i).getRegionName().equals(region))
+				.findFirst()
+				.orElse(0);
+	}
+
 	private void fail(Throwable error) {
 		this.setTitle("Loading Failed");
 		panel.removeComponent(pending);
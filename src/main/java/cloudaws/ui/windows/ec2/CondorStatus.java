@@ -1,10 +1,13 @@
 package cloudaws.ui.windows.ec2;
 
 import cloudaws.Main;
+import cloudaws.condor.CondorSlot;
+import cloudaws.condor.HTCondor;
 import cloudaws.ec2.EC2Utils;
+import cloudaws.ec2.InstanceQuery;
+import cloudaws.ec2.InstanceSnapshot;
 import cloudaws.ssh.EC2SecureShell;
 import cloudaws.ui.windows.PendingWindow;
-import com.amazonaws.services.ec2.model.Instance;
 import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
@@ -16,8 +19,7 @@ import com.googlecode.lanterna.gui2.table.Table;
 import com.jcraft.jsch.JSchException;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -25,9 +27,9 @@ public class CondorStatus extends PendingWindow {
 
 	private static final int DEFAULT_WIDTH = 60;
 	private static final String DEFAULT_TITLE = "HTCondor status";
-	private static final String COMMAND = "condor_status";
+	private static final long TIMEOUT = 10000;
 
-	private List<Instance> instances;
+	private List<InstanceSnapshot> instances;
 	private String pem = "";
 
 	private Panel inputField;
@@ -40,19 +42,9 @@ public class CondorStatus extends PendingWindow {
 		super();
 		setWidth(30);
 
-		Main.EC2().getInstances().thenAccept(instances -> {
-			this.instances = instances.stream().filter(inst -> {
-				return inst.getState().getCode() == 16;
-			}).collect(Collectors.toList());
-			this.instances.sort((i1, i2) -> {
-				String n1 = EC2Utils.getInstanceName(i1), n2 = EC2Utils.getInstanceName(i2);
-				if (n1.equals("") == n2.equals("")) {
-					return n1.compareTo(n2);
-				}
-				else {
-					return n2.length() - n1.length();
-				}
-			});
+		Main.EC2().getInstances(InstanceQuery.running()).thenAccept(instances -> {
+			this.instances = new ArrayList<>(instances);
+			this.instances.sort(EC2Utils.BY_NAME);
 
 			this.updatePanel();
 		}).exceptionally(err -> {
@@ -96,7 +88,8 @@ public class CondorStatus extends PendingWindow {
 					instances.get(collector.getSelectedIndex()).getPublicDnsName(),
 					this.pem
 			);
-			StatusModal modal = new StatusModal(shell.getSSHResponse(COMMAND, 3000));
+			// A deadline, not a wait: the modal fills in as soon as the command exits.
+			StatusModal modal = new StatusModal(new HTCondor(shell).status(HTCondor.STATUS_TABLE, TIMEOUT));
 			getTextGUI().addWindowAndWait(modal);
 
 		} catch (JSchException ex) {
@@ -126,10 +119,8 @@ public class CondorStatus extends PendingWindow {
 		Label cl = new Label("- Collector Instance").addStyle(SGR.BOLD);
 		List<String> combo = this.instances
 				.stream()
-				.map(instance -> {
-					String name = EC2Utils.getInstanceName(instance);
-					return name.length() > 0 ? name : instance.getInstanceId();
-				}).collect(Collectors.toList());
+				.map(InstanceSnapshot::getLabel)
+				.collect(Collectors.toList());
 		if (combo.size() == 0) combo.add("");
 
 		collector = new ComboBox<>(combo).setReadOnly(true).setLayoutData(
@@ -204,9 +195,13 @@ public class CondorStatus extends PendingWindow {
 
 	public static class StatusModal extends PendingWindow {
 
-		private CompletableFuture<List<String>> future;
+		// The summary columns of `condor_status`, and the slot states counted under them.
+		private static final String[] TOTAL_COLUMNS = { "", "Total", "Owner", "Claimed", "Unclaimed", "Matched", "Preempting", "Backfill", "Drain" };
+		private static final List<String> STATES = Arrays.asList("Owner", "Claimed", "Unclaimed", "Matched", "Preempting", "Backfill", "Drained");
+
+		private CompletableFuture<List<CondorSlot>> future;
 
-		StatusModal(CompletableFuture<List<String>> future) {
+		StatusModal(CompletableFuture<List<CondorSlot>> future) {
 			super();
 			setWidth(30);
 
@@ -219,10 +214,10 @@ public class CondorStatus extends PendingWindow {
 					});
 		}
 
-		void onSuccess(List<String> list) {
+		void onSuccess(List<CondorSlot> slots) {
 			panel.removeAllComponents();
 
-			Table<String> table = new Table<>(list.get(0).split("\\s+"));
+			Table<String> table = new Table<>("Name", "OpSys", "Arch", "State", "Activity", "LoadAv", "Mem", "ActvtyTime");
 			table.setLayoutData(GridLayout.createLayoutData(
 					GridLayout.Alignment.CENTER,
 					GridLayout.Alignment.CENTER,
@@ -230,34 +225,67 @@ public class CondorStatus extends PendingWindow {
 					true
 			));
 
-			int idx = 2;
-			while (list.get(idx).length() > 0) {
-				table.getTableModel().addRow(list.get(idx++).split("\\s+"));
+			// Per Arch/OpSys: the total, then one count per state.
+			Map<String, int[]> totals = new TreeMap<>();
+			int[] all = new int[STATES.size() + 1];
+			for (CondorSlot slot : slots) {
+				table.getTableModel().addRow(
+						text(slot.getName()),
+						text(slot.getOpSys()),
+						text(slot.getArch()),
+						text(slot.getState()),
+						text(slot.getActivity()),
+						slot.getLoadAvg() == null ? "" : String.format("%.3f", slot.getLoadAvg()),
+						slot.getMemory() == null ? "" : String.valueOf(slot.getMemory()),
+						duration(slot.getActivityTime())
+				);
+
+				int[] row = totals.computeIfAbsent(text(slot.getArch()) + "/" + text(slot.getOpSys()), k -> new int[STATES.size() + 1]);
+				int state = STATES.indexOf(slot.getState()) + 1;
+				row[0]++;
+				all[0]++;
+				if (state > 0) {
+					row[state]++;
+					all[state]++;
+				}
 			}
 			panel.addComponent(table);
 			panel.addComponent(new EmptySpace(TerminalSize.ONE));
 
-			Table<String> count = new Table<>(list.get(++idx).split("\\s+"));
+			Table<String> count = new Table<>(TOTAL_COLUMNS);
 			count.setLayoutData(GridLayout.createLayoutData(
 					GridLayout.Alignment.CENTER,
 					GridLayout.Alignment.CENTER,
 					true,
 					true
 			));
-			while (++idx < list.size()) {
-				if (list.get(idx).length() > 0) {
-					List<String> row = Arrays.stream(list.get(idx).split("\\s+")).collect(Collectors.toList());
-					row.remove(0);
-
-					count.getTableModel().addRow(row);
-				}
+			for (Map.Entry<String, int[]> row : totals.entrySet()) {
+				count.getTableModel().addRow(countRow(row.getKey(), row.getValue()));
 			}
+			count.getTableModel().addRow(countRow("Total", all));
 			panel.addComponent(count);
 
 			panel.addComponent(new EmptySpace(TerminalSize.ONE));
 			panel.addComponent(closeButton);
 		}
 
+		private static List<String> countRow(String label, int[] counts) {
+			List<String> row = new ArrayList<>(counts.length + 1);
+			row.add(label);
+			for (int value : counts) row.add(String.valueOf(value));
+			return row;
+		}
+
+		private static String text(String value) {
+			return value == null ? "" : value;
+		}
+
+		// As condor_status prints it: days+hh:mm:ss.
+		private static String duration(Long seconds) {
+			if (seconds == null) return "";
+			return String.format("%d+%02d:%02d:%02d", seconds / 86400, seconds / 3600 % 24, seconds / 60 % 60, seconds % 60);
+		}
+
 		void onFailure(Throwable error) {
 			error.printStackTrace();
 			panel.removeAllComponents();
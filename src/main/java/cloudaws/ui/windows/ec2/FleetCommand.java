@@ -0,0 +1,299 @@
+package cloudaws.ui.windows.ec2;
+
+import cloudaws.Main;
+import cloudaws.ec2.EC2Utils;
+import cloudaws.ec2.InstanceQuery;
+import cloudaws.ec2.InstanceSnapshot;
+import cloudaws.ssh.FleetExec;
+import cloudaws.ssh.SessionPool;
+import cloudaws.ui.windows.PendingWindow;
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.gui2.*;
+import com.googlecode.lanterna.gui2.dialogs.FileDialogBuilder;
+import com.googlecode.lanterna.gui2.dialogs.MessageDialogBuilder;
+import com.googlecode.lanterna.gui2.dialogs.MessageDialogButton;
+import com.googlecode.lanterna.gui2.table.Table;
+import com.jcraft.jsch.JSchException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Runs one shell command on many running instances and shows every host's outcome as it comes in.
+ */
+public class FleetCommand extends PendingWindow {
+
+	private static final int WIDTH = 70;
+	private static final String DEFAULT_TITLE = "Fleet command";
+	private static final String DEFAULT_COMMAND = "pgrep -x condor_startd";
+	private static final long TIMEOUT = 30000;
+	// Rows kept in the results table; the summary line still counts every host.
+	private static final int MAX_ROWS = 1000;
+
+	private List<InstanceSnapshot> instances;
+	private String pem = "";
+
+	private CheckBoxList<String> hosts;
+	private TextBox command, parallelism;
+	private Label keyLabel;
+
+	private CompletableFuture<List<FleetExec.HostResult>> running;
+	private Label progress;
+	private Table<String> table;
+	private final List<FleetExec.HostResult> shown = new ArrayList<>();
+	private int done, failed, total;
+	private long started;
+
+	public FleetCommand() {
+		super(DEFAULT_TITLE);
+		setWidth(WIDTH);
+
+		Main.EC2().getInstances(InstanceQuery.running()).thenAccept(instances -> {
+			this.instances = new ArrayList<>(instances);
+			this.instances.sort(EC2Utils.BY_NAME);
+			this.renderForm();
+		}).exceptionally(err -> {
+			this.fail(err);
+			return null;
+		});
+	}
+
+	private void renderForm() {
+		panel.removeAllComponents();
+
+		Panel form = new Panel().setLayoutManager(new GridLayout(2).setLeftMarginSize(1).setRightMarginSize(1));
+
+		command = new TextBox(new TerminalSize(WIDTH - 20, 1), DEFAULT_COMMAND);
+		addField(form, "Command", command);
+
+		parallelism = new TextBox(String.valueOf(FleetExec.DEFAULT_PARALLELISM)).setValidationPattern(Pattern.compile("\\d{0,3}"));
+		parallelism.setPreferredSize(new TerminalSize(5, 1));
+		addField(form, "Parallelism", parallelism);
+
+		keyLabel = new Label(pem.isEmpty() ? "(none)" : new File(pem).getName());
+		Panel key = new Panel().setLayoutManager(new LinearLayout(Direction.HORIZONTAL));
+		key.addComponent(new Button("Select", this::selectKey));
+		key.addComponent(keyLabel);
+		addField(form, "RSA Key", key);
+
+		panel.addComponent(form.withBorder(Borders.singleLine("Command")));
+
+		hosts = new CheckBoxList<>(new TerminalSize(WIDTH - 6, Math.max(1, Math.min(instances.size(), 10))));
+		for (InstanceSnapshot instance : instances) {
+			hosts.addItem(instance.getLabel() + " (" + instance.getInstanceId() + ")", true);
+		}
+		Panel selection = new Panel().setLayoutManager(new GridLayout(1));
+		if (instances.isEmpty()) selection.addComponent(new Label("No running instances."));
+		else selection.addComponent(hosts);
+
+		Panel toggles = new Panel().setLayoutManager(new LinearLayout(Direction.HORIZONTAL));
+		toggles.addComponent(new Button("All", () -> setAllChecked(true)));
+		toggles.addComponent(new Button("None", () -> setAllChecked(false)));
+		selection.addComponent(toggles);
+		panel.addComponent(selection.withBorder(Borders.singleLine("Hosts (" + instances.size() + " running)")));
+
+		Panel buttons = new Panel().setLayoutManager(new GridLayout(2).setHorizontalSpacing(5));
+		buttons.addComponent(new Button("Run", this::run));
+		closeButton = new Button(LocalizedString.Close.toString(), this::cancel);
+		buttons.addComponent(closeButton);
+		panel.addComponent(new EmptySpace(TerminalSize.ONE));
+		panel.addComponent(buttons.setLayoutData(GridLayout.createLayoutData(
+				GridLayout.Alignment.CENTER,
+				GridLayout.Alignment.CENTER,
+				true,
+				false
+		)));
+
+		command.takeFocus();
+	}
+
+	private void setAllChecked(boolean checked) {
+		for (int i = 0; i < hosts.getItemCount(); i++) hosts.setChecked(hosts.getItemAt(i), checked);
+	}
+
+	private void selectKey() {
+		FileDialogBuilder builder = new FileDialogBuilder()
+				.setTitle("Open file")
+				.setDescription("Choose an RSA PEM key file.")
+				.setActionLabel("Open");
+		builder.setShowHiddenDirectories(true);
+
+		File file = builder.build().showDialog(getTextGUI());
+		if (file != null && file.isFile()) {
+			pem = file.getAbsolutePath();
+			keyLabel.setText(file.getName());
+		}
+	}
+
+	private void run() {
+		List<FleetExec.Target> targets = new ArrayList<>();
+		for (int i = 0; i < instances.size(); i++) {
+			if (!hosts.isChecked(i)) continue;
+
+			InstanceSnapshot instance = instances.get(i);
+			String address = instance.getPublicDnsName() != null ? instance.getPublicDnsName() : instance.getPublicIpAddress();
+			targets.add(new FleetExec.Target(instance.getLabel(), address));
+		}
+
+		String cmd = command.getText().trim();
+		int parallel = parallelism.getText().isEmpty() ? 0 : Integer.parseInt(parallelism.getText());
+		String problem = targets.isEmpty() ? "Select at least one host."
+				: cmd.isEmpty() ? "Enter a command."
+				: parallel < 1 ? "Parallelism must be at least 1."
+				: pem.isEmpty() ? "Select a key file."
+				: null;
+		if (problem == null) {
+			try {
+				// A bad key fails here once, not once per host.
+				SessionPool.SHARED.identity(pem);
+			} catch (JSchException ex) {
+				problem = "Cannot read the key: " + ex.getMessage();
+			}
+		}
+		if (problem != null) {
+			new MessageDialogBuilder()
+					.setTitle("Invalid form")
+					.setText("  " + problem + "  ")
+					.addButton(MessageDialogButton.Close)
+					.build()
+					.showDialog(getTextGUI());
+			return;
+		}
+
+		renderProgress(cmd, targets.size());
+		running = FleetExec.run(targets, pem, cmd, TIMEOUT, parallel, this::onResult);
+		running.whenComplete((results, error) -> this.finish(error != null));
+	}
+
+	private void renderProgress(String cmd, int count) {
+		panel.removeAllComponents();
+		shown.clear();
+		done = 0;
+		failed = 0;
+		total = count;
+		started = System.currentTimeMillis();
+
+		Label title = new Label("$ " + cmd).addStyle(SGR.BOLD);
+		panel.addComponent(title);
+
+		progress = new Label("");
+		panel.addComponent(progress);
+		updateProgress();
+
+		table = new Table<>("Host", "Exit", "Time", "Output");
+		table.setPreferredSize(new TerminalSize(WIDTH - 4, 15));
+		table.setSelectAction(this::showDetails);
+		panel.addComponent(table);
+
+		panel.addComponent(new EmptySpace(TerminalSize.ONE));
+		closeButton = new Button("Stop", this::cancel).setLayoutData(GridLayout.createLayoutData(
+				GridLayout.Alignment.CENTER,
+				GridLayout.Alignment.CENTER,
+				true,
+				false
+		));
+		panel.addComponent(closeButton);
+		closeButton.takeFocus();
+	}
+
+	// Called from SSH and completion threads, like the rest of the windows' async updates.
+	private void onResult(FleetExec.HostResult result) {
+		synchronized (shown) {
+			done++;
+			if (!result.isSuccess()) failed++;
+			if (shown.size() < MAX_ROWS) {
+				shown.add(result);
+				String exit = result.getError() != null ? "err" : String.valueOf(result.getExitStatus());
+				table.getTableModel().addRow(
+						result.getTarget().getName(),
+						exit,
+						String.format("%.1fs", result.getElapsed() / 1000.0),
+						truncate(result.getSummary(), 40)
+				);
+			}
+			updateProgress();
+		}
+	}
+
+	private void updateProgress() {
+		progress.setText(String.format("%d/%d done, %d ok, %d failed, %.1fs", done, total, done - failed, failed, (System.currentTimeMillis() - started) / 1000.0));
+		progress.setForegroundColor(failed > 0 ? TextColor.ANSI.RED : TextColor.ANSI.DEFAULT);
+	}
+
+	private void finish(boolean cancelled) {
+		synchronized (shown) {
+			updateProgress();
+			if (cancelled) progress.setText(progress.getText() + " (stopped)");
+		}
+		running = null;
+		closeButton.setLabel(LocalizedString.Close.toString());
+	}
+
+	private void showDetails() {
+		FleetExec.HostResult result;
+		synchronized (shown) {
+			int row = table.getSelectedRow();
+			if (row < 0 || row >= shown.size()) return;
+			result = shown.get(row);
+		}
+
+		StringBuilder text = new StringBuilder();
+		if (result.getError() != null) {
+			text.append(result.getError().getMessage()).append('\n');
+		}
+		else {
+			text.append("exit ").append(result.getExitStatus()).append(" after ").append(result.getElapsed()).append(" ms\n");
+			appendLines(text, result.getResult().getStdout());
+			appendLines(text, result.getResult().getStderr());
+		}
+		new MessageDialogBuilder()
+				.setTitle(result.getTarget().getName())
+				.setText(text.toString())
+				.addButton(MessageDialogButton.Close)
+				.build()
+				.showDialog(getTextGUI());
+	}
+
+	private static void appendLines(StringBuilder text, List<String> lines) {
+		int limit = Math.min(lines.size(), 20);
+		for (int i = 0; i < limit; i++) text.append(truncate(lines.get(i), WIDTH)).append('\n');
+		if (lines.size() > limit) text.append("... ").append(lines.size() - limit).append(" more line(s)\n");
+	}
+
+	private static String truncate(String value, int max) {
+		return value.length() <= max ? value : value.substring(0, max - 1) + "…";
+	}
+
+	private void addField(Panel form, String name, Component component) {
+		form.addComponent(new Label("- " + name).addStyle(SGR.BOLD));
+		form.addComponent(component);
+	}
+
+	private void fail(Throwable error) {
+		this.setTitle("Loading Failed");
+		panel.removeComponent(pending);
+
+		System.err.println(error.getMessage());
+		Label msg = new Label(
+				" Failed to load EC2 instances from AWS.\nMake sure that your PC is connected to network\nand AWS access key is valid."
+		).setPreferredSize(new TerminalSize(DEFAULT_WIDTH, 3));
+		panel.addComponent(0, msg);
+		panel.addComponent(1, new EmptySpace(TerminalSize.ONE));
+	}
+
+	@Override
+	protected void cancel() {
+		CompletableFuture<List<FleetExec.HostResult>> current = running;
+		if (current != null) {
+			// Hosts already running finish; the rest are skipped.
+			current.cancel(false);
+			return;
+		}
+		this.close();
+	}
+}
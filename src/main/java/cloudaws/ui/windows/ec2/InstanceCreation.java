@@ -2,6 +2,7 @@ package cloudaws.ui.windows.ec2;
 
 import cloudaws.Main;
 import cloudaws.concurrent.Promise;
+import cloudaws.ec2.InstanceSnapshot;
 import cloudaws.ui.windows.PendingWindow;
 import com.amazonaws.services.ec2.model.*;
 import com.googlecode.lanterna.SGR;
@@ -10,25 +11,31 @@ import com.googlecode.lanterna.gui2.*;
 import com.googlecode.lanterna.gui2.dialogs.MessageDialogBuilder;
 import com.googlecode.lanterna.gui2.dialogs.MessageDialogButton;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class InstanceCreation extends PendingWindow {
 
 	private static final String DEFAULT_TITLE = "Create an instance";
+	private static final int MAX_COUNT = 500;
+	private static final Pattern NUMBER = Pattern.compile("%\\d*d");
 
 	private final RunInstancesRequest request = new RunInstancesRequest();
 	private boolean requested = false;
+	private List<CompletableFuture<InstanceSnapshot>> created = Collections.emptyList();
 
 	private List<Image> aImages;
 	private List<AvailabilityZone> aZones;
 	private List<String> aKeys;
 	private List<SecurityGroup> aSecurityGroups;
 
-	private TextBox name;
-	private ComboBox<String> cImages, cZones, cKeys, cGroups;
+	private TextBox name, count;
+	private ComboBox<String> cImages, cKeys, cGroups;
+	private CheckBoxList<String> cZones;
 
 	public InstanceCreation() {
 		super();
@@ -39,19 +46,37 @@ public class InstanceCreation extends PendingWindow {
 		prepareOptions();
 	}
 
+	// Served from the on-disk cache when there is one; a refresh that finds changes redraws the form.
 	private void prepareOptions() {
-		CompletableFuture<Void> images = Main.EC2().getImages().thenAccept(res -> this.aImages = res);
-		CompletableFuture<Void> zones = Main.EC2().avaliableZones().thenAccept(res -> this.aZones = res);
-		CompletableFuture<Void> keys = Main.EC2().getKeyPairs().thenAccept(res ->
-				this.aKeys = res.stream().map(KeyPairInfo::getKeyName).collect(Collectors.toList())
-		);
-		CompletableFuture<Void> groups = Main.EC2().getSecurityGroups().thenAccept(res ->
-				this.aSecurityGroups = res
-		);
+		CompletableFuture<Void> images = Main.EC2().cachedImages(res -> {
+			this.aImages = res;
+			this.redraw();
+		}).thenAccept(res -> this.aImages = res);
+		CompletableFuture<Void> zones = Main.EC2().cachedZones(res -> {
+			this.aZones = res;
+			this.redraw();
+		}).thenAccept(res -> this.aZones = res);
+		CompletableFuture<Void> keys = Main.EC2().cachedKeyPairs(res -> {
+			this.aKeys = keyNames(res);
+			this.redraw();
+		}).thenAccept(res -> this.aKeys = keyNames(res));
+		CompletableFuture<Void> groups = Main.EC2().cachedSecurityGroups(res -> {
+			this.aSecurityGroups = res;
+			this.redraw();
+		}).thenAccept(res -> this.aSecurityGroups = res);
 
 		new Promise<>(CompletableFuture.allOf(images, zones, keys, groups)).thenRun(this::updatePanel);
 	}
 
+	private static List<String> keyNames(List<KeyPairInfo> keys) {
+		return keys.stream().map(KeyPairInfo::getKeyName).collect(Collectors.toList());
+	}
+
+	private void redraw() {
+		// Nothing to redraw until the first complete set has arrived.
+		if (name != null) this.updatePanel();
+	}
+
 	@Override
 	public void cancel() {
 		this.close();
@@ -61,9 +86,24 @@ public class InstanceCreation extends PendingWindow {
 		return this.requested;
 	}
 
+	/**
+	 * One future per requested instance, completed once it is launched and named.
+	 */
+	public List<CompletableFuture<InstanceSnapshot>> getCreated() {
+		return this.created;
+	}
+
 	private void updatePanel() {
 		if (!this.getTitle().equals(DEFAULT_TITLE)) this.setTitle(DEFAULT_TITLE);
 
+		// What the user has entered so far survives a redraw.
+		String oldName = name != null ? name.getText() : "";
+		String oldCount = count != null ? count.getText() : "1";
+		String oldImage = cImages != null ? cImages.getSelectedItem() : null;
+		String oldKey = cKeys != null ? cKeys.getSelectedItem() : null;
+		String oldGroup = cGroups != null ? cGroups.getSelectedItem() : null;
+		List<String> oldZones = cZones != null ? cZones.getCheckedItems() : Collections.emptyList();
+
 		panel.removeAllComponents();
 		panel.setLayoutManager(new GridLayout(2)
 				.setLeftMarginSize(1)
@@ -71,11 +111,17 @@ public class InstanceCreation extends PendingWindow {
 		);
 
 		br();
-		name = new TextBox().setValidationPattern(Pattern.compile("[\\d\\w\\- .,]*"));
+		// `%` for the instance number when launching several, e.g. worker-%03d
+		name = new TextBox(oldName).setValidationPattern(Pattern.compile("[\\d\\w\\- .,%]*"));
 		name.setPreferredSize(new TerminalSize(30, 1));
 		name.setLayoutData(GridLayout.createLayoutData(GridLayout.Alignment.BEGINNING, GridLayout.Alignment.CENTER));
 		addField("Name", name);
 
+		count = new TextBox(oldCount).setValidationPattern(Pattern.compile("\\d{0,3}"));
+		count.setPreferredSize(new TerminalSize(5, 1));
+		count.setLayoutData(GridLayout.createLayoutData(GridLayout.Alignment.BEGINNING, GridLayout.Alignment.CENTER));
+		addField("Count", count);
+
 		LayoutData right = GridLayout.createLayoutData(
 				GridLayout.Alignment.END,
 				GridLayout.Alignment.CENTER,
@@ -88,10 +134,13 @@ public class InstanceCreation extends PendingWindow {
 				.setLayoutData(right);
 		if (this.aImages.isEmpty()) cImages.setEnabled(false);
 
-		cZones = new ComboBox<>(this.aZones.stream().map(AvailabilityZone::getZoneName).collect(Collectors.toList()))
-				.setReadOnly(true)
-				.setLayoutData(right);
+		// Launches are spread over every checked zone.
+		cZones = new CheckBoxList<String>(new TerminalSize(20, Math.max(1, Math.min(this.aZones.size(), 6))));
+		this.aZones.forEach(zone -> cZones.addItem(zone.getZoneName()));
+		oldZones.stream().filter(cZones.getItems()::contains).forEach(zone -> cZones.setChecked(zone, true));
 		if (this.aZones.isEmpty()) cZones.setEnabled(false);
+		else if (cZones.getCheckedItems().isEmpty()) cZones.setChecked(cZones.getItemAt(0), true);
+		cZones.setLayoutData(right);
 
 		cKeys = new ComboBox<>(this.aKeys)
 				.setReadOnly(true)
@@ -103,8 +152,12 @@ public class InstanceCreation extends PendingWindow {
 				.setLayoutData(right);
 		if (this.aSecurityGroups.isEmpty()) cGroups.setEnabled(false);
 
+		reselect(cImages, oldImage);
+		reselect(cKeys, oldKey);
+		reselect(cGroups, oldGroup);
+
 		addField("Image", cImages);
-		addField("Zone", cZones);
+		addField("Zones", cZones);
 		addField("Access Key", cKeys);
 		addField("Security Group", cGroups);
 		br();
@@ -134,26 +187,36 @@ public class InstanceCreation extends PendingWindow {
 				return;
 			}
 
+			int instances = count.getText().isEmpty() ? 0 : Integer.parseInt(count.getText());
+			List<String> zones = cZones.getCheckedItems();
+			String template = nameTemplate(name.getText().trim(), instances);
+			if (instances < 1 || instances > MAX_COUNT || zones.isEmpty() || template == null) {
+				new MessageDialogBuilder()
+						.setTitle("Invalid form")
+						.setText(String.format("  Pick 1 to %d instances, at least one zone,  \n  and a name with at most one %%d-style number.  ", MAX_COUNT))
+						.addButton(MessageDialogButton.Close)
+						.build()
+						.showDialog(getTextGUI());
+				return;
+			}
+
+			String text = instances == 1
+					? String.format("  Are you sure to make an instance '%s'?  ", String.format(template, 1))
+					: String.format("  Are you sure to make %d instances '%s' ... '%s'  \n  in %s?  ", instances, String.format(template, 1), String.format(template, instances), String.join(", ", zones));
 			MessageDialogButton confirm = new MessageDialogBuilder()
 					.setTitle("Confirm creation")
-					.setText(String.format("  Are you sure to make an instance '%s'?  ", name.getText().trim()))
+					.setText(text)
 					.addButton(MessageDialogButton.Yes)
 					.addButton(MessageDialogButton.No)
 					.build()
 					.showDialog(getTextGUI());
 
 			if (confirm.equals(MessageDialogButton.Yes)) {
-				request.withTagSpecifications(
-								new TagSpecification()
-										.withResourceType(ResourceType.Instance.toString())
-										.withTags(new Tag("Name", name.getText().trim()))
-						)
-						.withImageId(aImages.get(cImages.getSelectedIndex()).getImageId())
-						.withPlacement(new Placement(cZones.getSelectedItem()))
+				request.withImageId(aImages.get(cImages.getSelectedIndex()).getImageId())
 						.withKeyName(cKeys.getSelectedItem())
 						.withSecurityGroupIds(aSecurityGroups.get(cGroups.getSelectedIndex()).getGroupId());
 
-				Main.EC2().createInstance(request);
+				created = Main.EC2().createInstances(request, instances, zones, template);
 				requested = true;
 				this.close();
 			}
@@ -181,6 +244,29 @@ public class InstanceCreation extends PendingWindow {
 		this.invalidate();
 	}
 
+	// Several instances without a `%` in the name get a numeric suffix; null if the name is not a valid format.
+	// Exactly one integer conversion such as %d or %03d, or none for a single instance. Anything else
+	// (%s, %b, no number at all) would fail or give several instances the same name.
+	private static String nameTemplate(String name, int count) {
+		String template = count > 1 && !name.contains("%") ? name + "-%03d" : name;
+		String conversions = template.replace("%%", "");
+
+		int numbers = 0;
+		Matcher number = NUMBER.matcher(conversions);
+		while (number.find()) numbers++;
+		int percents = conversions.length() - conversions.replace("%", "").length();
+
+		if (percents != numbers || numbers > 1 || numbers == 0 && count > 1) return null;
+		return template;
+	}
+
+	private static void reselect(ComboBox<String> box, String item) {
+		if (item == null) return;
+		for (int i = 0; i < box.getItemCount(); i++) {
+			if (box.getItem(i).equals(item)) box.setSelectedIndex(i);
+		}
+	}
+
 	private void addField(String name, Component component) {
 		panel.addComponent(new Label("- " + name).addStyle(SGR.BOLD));
 		panel.addComponent(component);
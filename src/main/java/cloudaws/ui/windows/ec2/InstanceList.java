@@ -2,12 +2,16 @@ package cloudaws.ui.windows.ec2;
 
 import cloudaws.Main;
 import cloudaws.concurrent.Binding;
+import cloudaws.concurrent.Delta;
+import cloudaws.concurrent.FutureUtils;
+import cloudaws.ec2.BulkLaunch;
 import cloudaws.ec2.EC2Utils;
+import cloudaws.ec2.InstanceSnapshot;
+import cloudaws.ec2.LifecycleBatcher;
+import cloudaws.ec2.LifecycleResult;
+import cloudaws.ec2.RegionFanOut;
 import cloudaws.ui.windows.PendingWindow;
 
-import com.amazonaws.services.ec2.model.Instance;
-import com.amazonaws.services.ec2.model.InstanceState;
-
 import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
@@ -17,6 +21,7 @@ import com.googlecode.lanterna.gui2.dialogs.MessageDialogButton;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -26,18 +31,51 @@ public class InstanceList extends PendingWindow {
 	private static final String DEFAULT_TITLE = "Instances";
 	private static final int DEFAULT_HEIGHT = 10;
 
-	private CompletableFuture<List<Instance>> future;
-	private final Binding<List<Instance>> instances;
+	private CompletableFuture<Integer> future;
+	private final Binding<List<InstanceSnapshot>> instances;
+	private Map<String, InstanceSnapshot> inventory = Collections.emptyMap();
+	private List<InstanceSnapshot> shown = Collections.emptyList();
+	private AbstractListBox<?, ?> pool;
 	private String lastFocusd = "";
 
+	// Multi-select mode: checked instance IDs and the outcome of the last batch.
+	private boolean selecting = false;
+	private final Set<String> selected = new LinkedHashSet<>();
+	private String batchStatus = null;
+	private volatile boolean streaming = true;
+
+	// "All regions" view: instances of every enabled region, merged as each region responds.
+	private volatile boolean allRegions = false;
+	private final Set<String> failedRegions = ConcurrentHashMap.newKeySet();
+
 	public InstanceList() { this(""); }
 
 	public InstanceList(String title) {
 		super(title);
 		this.instances = new Binding<>(Main.EC2()::getInstances, this::fail)
 				.withDefault(Collections.emptyList())
-				.withNotifier(this, this::updateInstances);
-		this.instances.start();
+				.withNotifier(this, Delta.keyed(InstanceSnapshot::getInstanceId, this::updateInstances));
+
+		// First load streams page by page so rows show up after one round-trip;
+		// the binding takes over for refreshes once the full inventory is in.
+		Map<String, InstanceSnapshot> loaded = new LinkedHashMap<>();
+		CompletableFuture<Integer> stream = Main.EC2().streamInstances(page -> {
+			page.forEach(instance -> loaded.put(instance.getInstanceId(), instance));
+			this.inventory = new LinkedHashMap<>(loaded);
+			this.render();
+		});
+		this.future = stream;
+		stream.whenComplete((total, error) -> {
+			if (stream.isCancelled()) return;
+
+			streaming = false;
+			if (error != null) {
+				this.fail(error);
+				return;
+			}
+			this.render();
+			this.instances.start(Binding.DEFAULT_RELOAD_DELAY);
+		});
 	}
 
 	@Override
@@ -54,32 +92,41 @@ public class InstanceList extends PendingWindow {
 		this.close();
 	}
 
-	private void updateInstances(List<Instance> rawResult) {
-		if (!getTitle().equals(DEFAULT_TITLE)) this.setTitle(DEFAULT_TITLE);
-		panel.removeAllComponents();
-
-		List<Instance> instances = new ArrayList<>(rawResult != null ? rawResult.stream()
-				.filter(instance -> {
-					int code = instance.getState().getCode();
-					// Filtering terminated instances
-					return code != 32 && code != 48;
-				})
-				.collect(Collectors.toList()) : Collections.emptyList()
-		);
-		instances.sort((i1, i2) -> {
-			String n1 = EC2Utils.getInstanceName(i1), n2 = EC2Utils.getInstanceName(i2);
-			if (n1.equals("") == n2.equals("")) {
-				return n1.compareTo(n2);
-			}
-			else {
-				return n2.length() - n1.length();
-			}
-		});
+	// Only called when something was added, removed or changed since the last delivery.
+	private void updateInstances(Delta<String, InstanceSnapshot> delta) {
+		this.inventory = delta.getSnapshot();
+		this.render();
+	}
 
-		String[] zoneInfo = (instances.size() > 0) ?
-				instances.get(0).getPlacement().getAvailabilityZone().split("-") :
-				Main.EC2().getCurrentRegion().split("-");
-		String region = String.format("[%s-%s-%c]", zoneInfo[0], zoneInfo[1], zoneInfo[2].charAt(0));
+	private void render() {
+		String title = streaming ? DEFAULT_TITLE + " (loading " + inventory.size() + "...)" : DEFAULT_TITLE;
+		if (allRegions) {
+			title = DEFAULT_TITLE + " - all regions" + (failedRegions.isEmpty() ? "" : " (" + failedRegions.size() + " failed)");
+		}
+		if (!getTitle().equals(title)) this.setTitle(title);
+		if (pool != null && pool.getSelectedIndex() >= 0 && pool.getSelectedIndex() < shown.size()) {
+			lastFocusd = shown.get(pool.getSelectedIndex()).getInstanceId();
+		}
+		panel.removeAllComponents();
+		pool = null;
+
+		List<InstanceSnapshot> instances = inventory.values().stream()
+				// EC2 already leaves terminated instances out; this catches ones written through since
+				.filter(instance -> !instance.isGone())
+				.collect(Collectors.toList());
+		instances.sort(allRegions ? Comparator.comparing(InstanceSnapshot::getRegion).thenComparing(EC2Utils.BY_NAME) : EC2Utils.BY_NAME);
+		this.shown = instances;
+
+		String region;
+		if (allRegions) {
+			region = String.format("[all regions: %d]", instances.stream().map(InstanceSnapshot::getRegion).distinct().count());
+		}
+		else {
+			String[] zoneInfo = (instances.size() > 0) ?
+					instances.get(0).getAvailabilityZone().split("-") :
+					Main.EC2().getCurrentRegion().split("-");
+			region = String.format("[%s-%s-%c]", zoneInfo[0], zoneInfo[1], zoneInfo[2].charAt(0));
+		}
 
 		panel.addComponent(new Label(region).addStyle(SGR.BOLD).setLayoutData(
 				GridLayout.createLayoutData(
@@ -90,54 +137,68 @@ public class InstanceList extends PendingWindow {
 				)
 		));
 		panel.addComponent(new EmptySpace(TerminalSize.ONE));
+		if (batchStatus != null) {
+			panel.addComponent(new Label(batchStatus).setPreferredSize(new TerminalSize(DEFAULT_WIDTH, 1)));
+		}
 
-		if (instances.size() > 0) {
-			ActionListBox pool = new ActionListBox(new TerminalSize(DEFAULT_WIDTH, Math.min(instances.size() + 1, DEFAULT_HEIGHT)));
+		if (instances.size() > 0 && selecting) {
+			renderSelection(instances);
+		}
+		else if (instances.size() > 0) {
+			ActionListBox actions = new ActionListBox(new TerminalSize(DEFAULT_WIDTH, Math.min(instances.size() + 1, DEFAULT_HEIGHT)));
+			pool = actions;
 			instances.forEach(instance -> {
-				String name = EC2Utils.getInstanceName(instance), field;
+				String name = instance.getName(), field;
 				if (!name.equals("")) {
 					field = String.format("▶ %s (%s)", name, instance.getInstanceId());
 				}
 				else {
 					field = "▶ " + instance.getInstanceId();
 				}
+				if (allRegions) field += " @" + instance.getRegion();
 
-				pool.addItem(field, () -> {
+				actions.addItem(field, () -> {
 					lastFocusd = instance.getInstanceId();
-					InstanceModal modal = new InstanceModal(instance);
+					InstanceModal modal = new InstanceModal(instance, this.instances::refresh);
 
 					this.instances.pause(this);
-					this.instances.bind(modal, list -> {
-						Optional<Instance> updated = list.stream().filter(i -> i.getInstanceId().equals(modal.instance.getInstanceId())).findFirst();
-						if (updated.isPresent()) {
-							modal.instance = updated.get();
-							modal.updateState(updated.get().getState());
-						}
-						else {
+					this.instances.bind(modal, Delta.keyed(InstanceSnapshot::getInstanceId, delta -> {
+						String id = modal.instance.getInstanceId();
+						InstanceSnapshot updated = delta.getSnapshot().get(id);
+						if (updated == null) {
 							modal.updateState(null);
 						}
-					});
+						else if (delta.getAdded().containsKey(id) || delta.getChanged().containsKey(id)) {
+							modal.instance = updated;
+							modal.updateState(updated);
+						}
+					}));
 					getTextGUI().addWindowAndWait(modal);
 					this.instances.unbind(modal);
 
-					this.updateInstances(this.instances.get());
+					this.render();
+					this.instances.resume(this);
 				});
 			});
-			pool.addItem("<Create a new instance>", this::createInstance);
-
-			panel.addComponent(pool);
-			pool.takeFocus();
-
-			if (!lastFocusd.equals("")) {
-				int lastIndex = IntStream.range(0, instances.size())
-						.filter(i -> Objects.nonNull(instances.get(i)))
-						.filter(i -> instances.get(i).getInstanceId().equals(lastFocusd))
-						.findFirst()
-						.orElse(-1);
-				if (lastIndex >= 0) {
-					pool.setSelectedIndex(lastIndex);
-				}
-			}
+			actions.addItem("<Create a new instance>", this::createInstance);
+
+			panel.addComponent(actions);
+			actions.takeFocus();
+			restoreFocus(instances);
+
+			Panel modes = new Panel().setLayoutManager(new GridLayout(2).setHorizontalSpacing(2));
+			modes.addComponent(new Button("Select multiple", () -> {
+				selecting = true;
+				batchStatus = null;
+				this.render();
+			}));
+			modes.addComponent(regionToggle());
+			panel.addComponent(modes.setLayoutData(GridLayout.createLayoutData(
+					GridLayout.Alignment.CENTER,
+					GridLayout.Alignment.CENTER,
+					true,
+					false
+			)));
 		}
 		else {
 			panel.addComponent(new Label("There is no available instance.")
@@ -159,29 +220,194 @@ public class InstanceList extends PendingWindow {
 				)
 			);
 			panel.addComponent(newInstance);
+			panel.addComponent(regionToggle().setLayoutData(GridLayout.createLayoutData(
+					GridLayout.Alignment.CENTER,
+					GridLayout.Alignment.CENTER,
+					true,
+					false
+			)));
 			newInstance.takeFocus();
 		}
 
 		panel.addComponent(new EmptySpace(TerminalSize.ONE));
 		panel.addComponent(closeButton);
 
-		// Run only once.
-		this.instances.pause(this);
 		this.invalidate();
 	}
 
+	private Button regionToggle() {
+		return new Button(allRegions ? "This region" : "All regions", () -> {
+			allRegions = !allRegions;
+			failedRegions.clear();
+			this.instances.withProvider(allRegions ? this::fetchAllRegions : Main.EC2()::getInstances);
+			this.instances.refresh();
+			this.render();
+		});
+	}
+
+	// Each region is merged in as soon as it responds; the binding's delta then settles the full list.
+	private CompletableFuture<List<InstanceSnapshot>> fetchAllRegions() {
+		return Main.EC2().getInstancesAllRegions(result -> {
+			if (!result.isSuccess()) {
+				if (failedRegions.add(result.getRegion())) {
+					System.err.println("Failed to load instances in " + result.getRegion() + ": " + result.getError().getMessage());
+				}
+				return;
+			}
+			failedRegions.remove(result.getRegion());
+			if (!allRegions) return;
+
+			Map<String, InstanceSnapshot> merged = new LinkedHashMap<>(inventory);
+			merged.values().removeIf(instance -> result.getRegion().equals(instance.getRegion()));
+			result.getValue().forEach(instance -> merged.put(instance.getInstanceId(), instance));
+			if (!merged.equals(inventory)) {
+				this.inventory = merged;
+				this.render();
+			}
+		}).thenApply(results -> {
+			List<InstanceSnapshot> all = new ArrayList<>();
+			for (RegionFanOut.Result<List<InstanceSnapshot>> result : results) {
+				if (result.isSuccess()) {
+					all.addAll(result.getValue());
+				}
+				else {
+					// Keep what we last saw of a region that failed this round.
+					inventory.values().stream().filter(instance -> result.getRegion().equals(instance.getRegion())).forEach(all::add);
+				}
+			}
+			return all;
+		});
+	}
+
+	private void restoreFocus(List<InstanceSnapshot> instances) {
+		if (!lastFocusd.equals("")) {
+			int lastIndex = IntStream.range(0, instances.size())
+					.filter(i -> Objects.nonNull(instances.get(i)))
+					.filter(i -> instances.get(i).getInstanceId().equals(lastFocusd))
+					.findFirst()
+					.orElse(-1);
+			if (lastIndex >= 0) {
+				pool.setSelectedIndex(lastIndex);
+			}
+		}
+	}
+
+	private void renderSelection(List<InstanceSnapshot> instances) {
+		Set<String> visible = instances.stream().map(InstanceSnapshot::getInstanceId).collect(Collectors.toSet());
+		selected.retainAll(visible);
+
+		CheckBoxList<String> checks = new CheckBoxList<>(new TerminalSize(DEFAULT_WIDTH, Math.min(instances.size(), DEFAULT_HEIGHT)));
+		instances.forEach(instance -> checks.addItem(
+				String.format("%s [%s]", instance.getLabel(), instance.getStateName()),
+				selected.contains(instance.getInstanceId())
+		));
+		checks.addListener((index, checked) -> {
+			String id = instances.get(index).getInstanceId();
+			if (checked) selected.add(id);
+			else selected.remove(id);
+		});
+		pool = checks;
+
+		panel.addComponent(checks);
+		checks.takeFocus();
+		restoreFocus(instances);
+
+		Panel buttons = new Panel().setLayoutManager(new GridLayout(4).setHorizontalSpacing(2));
+		buttons.addComponent(new Button("Start", () -> runBatch(LifecycleBatcher.Action.START, InstanceSnapshot.STOPPED)));
+		buttons.addComponent(new Button("Stop", () -> runBatch(LifecycleBatcher.Action.STOP, InstanceSnapshot.RUNNING)));
+		buttons.addComponent(new Button("Reboot", () -> runBatch(LifecycleBatcher.Action.REBOOT, InstanceSnapshot.RUNNING)));
+		buttons.addComponent(new Button("Done", () -> {
+			selecting = false;
+			selected.clear();
+			this.render();
+		}));
+		panel.addComponent(buttons.setLayoutData(GridLayout.createLayoutData(
+				GridLayout.Alignment.CENTER,
+				GridLayout.Alignment.CENTER,
+				true,
+				false
+		)));
+	}
+
+	// Instances not in `required` state are skipped; the rest go out in as few calls as the batcher allows.
+	private void runBatch(LifecycleBatcher.Action action, int required) {
+		String verb = action.name().charAt(0) + action.name().substring(1).toLowerCase();
+		List<String> ids = shown.stream()
+				.filter(instance -> selected.contains(instance.getInstanceId()))
+				.filter(instance -> instance.getStateCode() == required)
+				.map(InstanceSnapshot::getInstanceId)
+				.collect(Collectors.toList());
+		int skipped = selected.size() - ids.size();
+
+		if (ids.isEmpty()) {
+			batchStatus = "No selected instance is in a state to " + verb.toLowerCase() + ".";
+			this.render();
+			return;
+		}
+
+		MessageDialogButton answer = new MessageDialogBuilder()
+				.setTitle("Confirm " + verb.toLowerCase())
+				.setText(String.format("  %s %d instance(s)?%s  ", verb, ids.size(), skipped > 0 ? String.format(" (%d skipped)", skipped) : ""))
+				.addButton(MessageDialogButton.Yes)
+				.addButton(MessageDialogButton.No)
+				.build()
+				.showDialog(getTextGUI());
+		if (answer != MessageDialogButton.Yes) return;
+
+		batchStatus = String.format("%s: %d requested...", verb, ids.size());
+		this.render();
+
+		Map<String, List<String>> byRegion = shown.stream()
+				.filter(instance -> ids.contains(instance.getInstanceId()))
+				.collect(Collectors.groupingBy(InstanceSnapshot::getRegion, Collectors.mapping(InstanceSnapshot::getInstanceId, Collectors.toList())));
+		List<CompletableFuture<List<LifecycleResult>>> calls = new ArrayList<>();
+		byRegion.forEach((region, regionIds) -> calls.add(Main.EC2().lifecycle(region, action, regionIds)));
+
+		CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).thenAccept(ignored -> {
+			List<LifecycleResult> results = new ArrayList<>();
+			calls.forEach(call -> results.addAll(call.join()));
+
+			int failed = 0;
+			for (LifecycleResult result : results) {
+				if (!result.isSuccess()) {
+					failed++;
+					System.err.println(result);
+				}
+			}
+			batchStatus = String.format("%s: %d ok, %d failed%s", verb, results.size() - failed, failed, skipped > 0 ? ", " + skipped + " skipped" : "");
+			this.render();
+			this.instances.refresh();
+		});
+	}
+
 	private void createInstance() {
 		InstanceCreation creation = new InstanceCreation();
 		getTextGUI().addWindowAndWait(creation);
 
 		if (creation.isRequested()) {
-			panel.removeAllComponents();
-			this.setTitle("");
-			this.lastFocusd = "";
-
-			buildComponents();
-
-			this.instances.resume(this);
+			// The list stays subscribed; the new instance shows up with the next delta,
+			// and once more when it is running.
+			this.instances.refresh();
+			// Instances that could not be named are still launched, and waited for like the rest.
+			List<CompletableFuture<InstanceSnapshot>> created = creation.getCreated().stream().map(future -> future.exceptionally(error -> {
+				Throwable cause = FutureUtils.unwrap(error);
+				System.err.println(cause.getMessage());
+				return cause instanceof BulkLaunch.UnfinishedException ? ((BulkLaunch.UnfinishedException) cause).getInstance() : null;
+			})).collect(Collectors.toList());
+			CompletableFuture.allOf(created.toArray(new CompletableFuture<?>[0])).thenCompose(ignored -> {
+				Map<String, List<String>> byRegion = created.stream()
+						.map(future -> future.getNow(null))
+						.filter(Objects::nonNull)
+						.collect(Collectors.groupingBy(InstanceSnapshot::getRegion, Collectors.mapping(InstanceSnapshot::getInstanceId, Collectors.toList())));
+				this.instances.refresh();
+
+				List<CompletableFuture<List<InstanceSnapshot>>> waits = new ArrayList<>();
+				byRegion.forEach((region, ids) -> waits.add(Main.EC2().awaitState(region, ids, InstanceSnapshot.RUNNING)));
+				return CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0]));
+			}).whenComplete((ignored, error) -> {
+				if (error != null) System.err.println(error.getMessage());
+				this.instances.refresh();
+			});
 		}
 	}
 
@@ -200,7 +426,8 @@ public class InstanceList extends PendingWindow {
 	}
 
 	public static class InstanceModal extends AbstractWindow {
-		private Instance instance;
+		private InstanceSnapshot instance;
+		private final Runnable onAction;
 
 		private final Panel mainPanel;
 		private Border addressBoard;
@@ -223,13 +450,18 @@ public class InstanceList extends PendingWindow {
 			COLOR_MAP.put(80, TextColor.ANSI.BLACK);
 		}
 
-		public InstanceModal(Instance instance) {
+		public InstanceModal(InstanceSnapshot instance) {
+			this(instance, null);
+		}
+
+		public InstanceModal(InstanceSnapshot instance, Runnable onAction) {
 			super("Instance Info.");
 			this.instance = instance;
+			this.onAction = onAction;
 			this.mainPanel = new Panel();
 
-			this.stateLabel = new Label("● " + instance.getState().getName());
-			TextColor color = COLOR_MAP.getOrDefault(instance.getState().getCode(), TextColor.ANSI.DEFAULT);
+			this.stateLabel = new Label("● " + instance.getStateName());
+			TextColor color = COLOR_MAP.getOrDefault(instance.getStateCode(), TextColor.ANSI.DEFAULT);
 			this.stateLabel.setForegroundColor(color);
 
 			buildComponents();
@@ -249,7 +481,7 @@ public class InstanceList extends PendingWindow {
 
 			mainPanel.addComponent(inner);
 			// An instance is running (code: 16)
-			if (instance.getState().getCode() == 16) {
+			if (instance.isRunning()) {
 				Panel addressPanel = buildAddressPanel();
 				addressBoard = addressPanel.withBorder(Borders.singleLine("Address Info."));
 
@@ -284,13 +516,13 @@ public class InstanceList extends PendingWindow {
 							.setRightMarginSize(1)
 			);
 
-			String name = EC2Utils.getInstanceName(instance);
+			String name = instance.getName();
 			if (!name.equals("")) printField(panel, "Name", name);
 			printField(panel, "Instance ID", instance.getInstanceId());
 			printField(panel, "AMI Image", instance.getImageId());
 			printField(panel, "Arch", instance.getArchitecture());
 			printField(panel, "Type", instance.getInstanceType());
-			printField(panel, "Region", instance.getPlacement().getAvailabilityZone());
+			printField(panel, "Region", instance.getAvailabilityZone());
 
 			return panel;
 		}
@@ -343,34 +575,40 @@ public class InstanceList extends PendingWindow {
 					.addButton(MessageDialogButton.No);
 
 			Button start = factory.apply("Start", () -> {
-				if (this.instance.getState().getCode() != 80) return;
+				if (this.instance.getStateCode() != 80) return;
 				MessageDialogButton answer = builder.setTitle("Confirm start")
 						.setText("  Start this instance?  ")
 						.build()
 						.showDialog(getTextGUI());
 
-				if (answer == MessageDialogButton.Yes)
-					Main.EC2().startInstance(instance.getInstanceId());
+				if (answer == MessageDialogButton.Yes) {
+					awaitTransition(Main.EC2().lifecycle(instance.getRegion(), LifecycleBatcher.Action.START, Collections.singletonList(instance.getInstanceId())), InstanceSnapshot.RUNNING);
+					this.notifyAction();
+				}
 			});
 			Button stop = factory.apply("Stop", () -> {
-				if (this.instance.getState().getCode() != 16) return;
+				if (this.instance.getStateCode() != 16) return;
 				MessageDialogButton answer = builder.setTitle("Confirm stop")
 						.setText("  Stop this instance?  ")
 						.build()
 						.showDialog(getTextGUI());
 
-				if (answer == MessageDialogButton.Yes)
-					Main.EC2().stopInstance(instance.getInstanceId());
+				if (answer == MessageDialogButton.Yes) {
+					awaitTransition(Main.EC2().lifecycle(instance.getRegion(), LifecycleBatcher.Action.STOP, Collections.singletonList(instance.getInstanceId())), InstanceSnapshot.STOPPED);
+					this.notifyAction();
+				}
 			});
 			Button reboot = factory.apply("Reboot", () -> {
-				if (this.instance.getState().getCode() != 16) return;
+				if (this.instance.getStateCode() != 16) return;
 				MessageDialogButton answer = builder.setTitle("Confirm reboot")
 						.setText("  Reboot this instance?  ")
 						.build()
 						.showDialog(getTextGUI());
 
-				if (answer == MessageDialogButton.Yes)
-					Main.EC2().rebootInstance(instance.getInstanceId());
+				if (answer == MessageDialogButton.Yes) {
+					Main.EC2().lifecycle(instance.getRegion(), LifecycleBatcher.Action.REBOOT, Collections.singletonList(instance.getInstanceId()));
+					this.notifyAction();
+				}
 			});
 
 			panel.addComponent(start);
@@ -380,18 +618,37 @@ public class InstanceList extends PendingWindow {
 			return panel;
 		}
 
-		public void updateState(InstanceState newState) {
+		private void notifyAction() {
+			if (onAction != null) onAction.run();
+		}
+
+		// Refreshes once more when the transition is over, instead of leaving it to the next poll.
+		private void awaitTransition(CompletableFuture<List<LifecycleResult>> call, int target) {
+			String region = instance.getRegion();
+			String id = instance.getInstanceId();
+			call.thenCompose(results -> {
+				for (LifecycleResult result : results) {
+					if (!result.isSuccess()) return CompletableFuture.completedFuture(null);
+				}
+				return Main.EC2().awaitState(region, id, target);
+			}).whenComplete((updated, error) -> {
+				if (error != null) System.err.println(error.getMessage());
+				else if (updated != null) this.notifyAction();
+			});
+		}
+
+		public void updateState(InstanceSnapshot newState) {
 			if (newState != null) {
-				this.stateLabel.setText("● " + newState.getName());
-				TextColor color = COLOR_MAP.getOrDefault(newState.getCode(), TextColor.ANSI.DEFAULT);
+				this.stateLabel.setText("● " + newState.getStateName());
+				TextColor color = COLOR_MAP.getOrDefault(newState.getStateCode(), TextColor.ANSI.DEFAULT);
 				this.stateLabel.setForegroundColor(color);
 
 				if (mainPanel.containsComponent(addressBoard)) {
-					if (newState.getCode() != 16) {
+					if (newState.getStateCode() != 16) {
 						mainPanel.removeComponent(addressBoard);
 					}
 				}
-				else if (newState.getCode() == 16) {
+				else if (newState.getStateCode() == 16) {
 					if (addressBoard == null) {
 						addressBoard = buildAddressPanel().withBorder(Borders.singleLine("Address Info."));
 					}